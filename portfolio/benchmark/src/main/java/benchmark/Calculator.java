@@ -0,0 +1,139 @@
+package benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+
+/**
+ * 電卓本体クラスへの呼び出し口。
+ *
+ * 本体のクラスは無名パッケージに置かれており、名前付きパッケージ
+ * （JMH はベンチマーククラスに名前付きパッケージを要求する）からは
+ * 直接参照できない。そのため、クラス名でロードしたうえで
+ * static final の MethodHandle として公開する。
+ * static final の MethodHandle は JIT により定数として畳み込まれるため、
+ * 通常のメソッド呼び出しと同等のコストで計測できる。
+ */
+final class Calculator {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    static final Class<?> MODEL_CLASS = load("CalculatorModel");
+    static final Class<?> OPERATOR_CLASS = load("Operator");
+    static final Class<?> FORMATTER_CLASS = load("FormatterUtil");
+    static final Class<?> SCALED_VALUE_CLASS = load("ScaledValue");
+    static final Class<?> SCALED_COLUMN_CLASS = load("ScaledColumn");
+    static final Class<?> MEMO_CACHE_CLASS = load("OperatorMemoCache");
+    static final Class<?> POLICY_CLASS = load("PrecisionPolicy");
+
+    // CalculatorModel
+    static final MethodHandle NEW_MODEL = constructor(MODEL_CLASS);
+    static final MethodHandle NEW_MODEL_WITH_POLICY = constructor(MODEL_CLASS, POLICY_CLASS);
+    static final MethodHandle APPEND_DIGIT = virtual(MODEL_CLASS, "appendDigit", void.class, char.class);
+    static final MethodHandle APPEND_DOT = virtual(MODEL_CLASS, "appendDot", void.class);
+    static final MethodHandle INPUT_OPERATOR = virtual(MODEL_CLASS, "inputOperator", void.class, OPERATOR_CLASS);
+    static final MethodHandle EQUALS_OP = virtual(MODEL_CLASS, "equalsOp", void.class);
+    static final MethodHandle CLEAR_ALL = virtual(MODEL_CLASS, "clearAll", void.class);
+    static final MethodHandle GET_DISPLAY_TEXT = virtual(MODEL_CLASS, "getDisplayText", String.class);
+
+    // Operator
+    static final MethodHandle OPERATOR_APPLY = virtual(OPERATOR_CLASS, "apply", BigDecimal.class, BigDecimal.class, BigDecimal.class);
+    static final MethodHandle OPERATOR_APPLY_SCALED = virtual(OPERATOR_CLASS, "applyScaled", boolean.class,
+            long.class, int.class, long.class, int.class, SCALED_VALUE_CLASS);
+    static final MethodHandle OPERATOR_APPLY_COLUMNS = virtual(OPERATOR_CLASS, "applyColumns", SCALED_COLUMN_CLASS,
+            SCALED_COLUMN_CLASS, SCALED_COLUMN_CLASS);
+    static final MethodHandle OPERATOR_APPLY_DOUBLE_COLUMNS = virtual(OPERATOR_CLASS, "applyColumns", void.class,
+            double[].class, double[].class, double[].class);
+    static final MethodHandle OPERATOR_ENABLE_MEMO = virtual(OPERATOR_CLASS, "enableMemo", MEMO_CACHE_CLASS, int.class);
+    static final MethodHandle OPERATOR_DISABLE_MEMO = virtual(OPERATOR_CLASS, "disableMemo", void.class);
+    static final MethodHandle OPERATOR_FROM_DISPLAY = statik(OPERATOR_CLASS, "fromDisplay", OPERATOR_CLASS, String.class);
+
+    // PrecisionPolicy
+    static final MethodHandle POLICY_BOUNDED = statik(POLICY_CLASS, "bounded", POLICY_CLASS, int.class);
+
+    // ScaledValue
+    static final MethodHandle NEW_SCALED_VALUE = constructor(SCALED_VALUE_CLASS);
+
+    // ScaledColumn
+    static final MethodHandle NEW_SCALED_COLUMN = constructor(SCALED_COLUMN_CLASS, long[].class, int.class);
+
+    // FormatterUtil
+    static final MethodHandle FORMAT_FOR_DISPLAY = statik(FORMATTER_CLASS, "formatForDisplay", String.class, BigDecimal.class, int.class);
+
+    //表示上の最大桁数（CalculatorModel.MAX_DIGITS と同じ値）
+    static final int MAX_DIGITS = 8;
+
+    private Calculator() {}
+
+    /**
+     * Operator の列挙子を名前から取得する（ADD / SUB / MUL / DIV）
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object operator(String name) {
+        return Enum.valueOf((Class) OPERATOR_CLASS, name);
+    }
+
+    /**
+     * 計算結果の有効桁数の方針を取得する（"exact" または桁数）
+     */
+    static Object precisionPolicy(String spec) throws Throwable {
+        if (spec.equals("exact")) {
+            return POLICY_CLASS.getField("EXACT").get(null);
+        }
+        return (Object) POLICY_BOUNDED.invokeExact(Integer.parseInt(spec));
+    }
+
+    // ==================================================
+    // 補助メソッド
+    // ==================================================
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    //本体クラスの型を Object に置き換え、ベンチマーク側から invokeExact で呼べる形にする
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isCalculatorClass(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isCalculatorClass(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isCalculatorClass(Class<?> type) {
+        return !type.isPrimitive() && type.getPackageName().isEmpty();
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findConstructor(owner, MethodType.methodType(void.class, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle virtual(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findVirtual(owner, name, MethodType.methodType(returnType, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle statik(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findStatic(owner, name, MethodType.methodType(returnType, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
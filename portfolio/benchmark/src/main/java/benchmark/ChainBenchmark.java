@@ -0,0 +1,96 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 乗除算の長い連続計算のベンチマーク。
+ *
+ * 「乗数 (× 乗数 × 乗数 ÷ 除数) … =」を chainLength 回の演算として入力し、
+ * 計算結果の有効桁数の方針（丸めなし / 上限付き）による 1 回の演算あたりの時間を比較する。
+ * 1 回の呼び出しで 1 回の演算（演算子と次の数値の入力）を行い、chainLength 回ごとに = で確定して最初からやり直す。
+ * 丸めなしでは乗算のたびに整数部の桁数が伸びるため、連続回数に対して 1 回あたりの時間が増える。
+ * -prof gc の gc.alloc.rate.norm は 1 回の演算あたりの割り当てバイト数となり、
+ * 上限付きでは連続回数によらず一定であることを確認できる。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainBenchmark {
+
+    //計算結果の有効桁数の方針（"exact" または桁数）
+    @Param({"exact", "34"})
+    public String precision;
+
+    //演算の連続回数
+    @Param({"10", "100", "1000"})
+    public int chainLength;
+
+    //乗数・除数の入力文字列（除算は割り切れない値とする）
+    @Param({"98765432"})
+    public String multiplier;
+
+    @Param({"7"})
+    public String divisor;
+
+    private Object model;
+    private char[] multiplierKeys;
+    private char[] divisorKeys;
+    private Object[] chain;
+    private Object div;
+    private int position;//chain の次の演算の位置
+
+    @Setup
+    public void setUp() throws Throwable {
+        model = (Object) Calculator.NEW_MODEL_WITH_POLICY.invokeExact(Calculator.precisionPolicy(precision));
+        multiplierKeys = multiplier.toCharArray();
+        divisorKeys = divisor.toCharArray();
+        Object mul = Calculator.operator("MUL");
+        div = Calculator.operator("DIV");
+        chain = new Object[chainLength];
+        for (int i = 0; i < chainLength; i++) {
+            chain[i] = (i % 3 == 2) ? div : mul;
+        }
+        Calculator.CLEAR_ALL.invokeExact(model);
+        type(multiplierKeys);
+        position = 0;
+    }
+
+    //連続計算の 1 回の演算（chainLength 回目の後は = で確定して最初の数値から入力し直す）
+    @Benchmark
+    public void multiplyDivideStep() throws Throwable {
+        if (position == chainLength) {
+            Calculator.EQUALS_OP.invokeExact(model);
+            Calculator.CLEAR_ALL.invokeExact(model);
+            type(multiplierKeys);
+            position = 0;
+        }
+        Object operator = chain[position++];
+        Calculator.INPUT_OPERATOR.invokeExact(model, operator);
+        type(operator == div ? divisorKeys : multiplierKeys);
+    }
+
+    private void type(char[] keys) throws Throwable {
+        for (char key : keys) {
+            if (key == '.') {
+                Calculator.APPEND_DOT.invokeExact(model);
+            } else {
+                Calculator.APPEND_DIGIT.invokeExact(model, key);
+            }
+        }
+    }
+}
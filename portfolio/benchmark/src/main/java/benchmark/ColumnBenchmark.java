@@ -0,0 +1,90 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 列単位の一括演算（Operator.applyColumns）のベンチマーク。
+ *
+ * 同じデータに対して、1 行ずつ BigDecimal で Operator.apply を呼ぶ場合（perRow）と、
+ * 固定小数点の列・double 配列にまとめて適用する場合（scaledColumns / doubleColumns）を比較する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnBenchmark {
+
+    @Param({"ADD", "MUL", "DIV"})
+    public String operator;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private Object op;
+    private BigDecimal[] leftRows;
+    private BigDecimal[] rightRows;
+    private Object leftColumn;
+    private Object rightColumn;
+    private double[] leftDoubles;
+    private double[] rightDoubles;
+    private double[] doubleResult;
+
+    @Setup
+    public void setUp() throws Throwable {
+        op = Calculator.operator(operator);
+        Random random = new Random(42);
+        long[] left = new long[rows];
+        long[] right = new long[rows];
+        leftRows = new BigDecimal[rows];
+        rightRows = new BigDecimal[rows];
+        leftDoubles = new double[rows];
+        rightDoubles = new double[rows];
+        doubleResult = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            //8 桁・小数 2 桁の値（電卓の入力範囲）
+            left[i] = random.nextInt(100_000_000) - 50_000_000;
+            right[i] = random.nextInt(100_000_000) + 1;
+            leftRows[i] = BigDecimal.valueOf(left[i], 2);
+            rightRows[i] = BigDecimal.valueOf(right[i], 2);
+            leftDoubles[i] = left[i] / 100.0;
+            rightDoubles[i] = right[i] / 100.0;
+        }
+        leftColumn = (Object) Calculator.NEW_SCALED_COLUMN.invokeExact(left, 2);
+        rightColumn = (Object) Calculator.NEW_SCALED_COLUMN.invokeExact(right, 2);
+    }
+
+    @Benchmark
+    public void perRow(Blackhole blackhole) throws Throwable {
+        for (int i = 0; i < rows; i++) {
+            blackhole.consume((BigDecimal) Calculator.OPERATOR_APPLY.invokeExact(op, leftRows[i], rightRows[i]));
+        }
+    }
+
+    @Benchmark
+    public Object scaledColumns() throws Throwable {
+        return (Object) Calculator.OPERATOR_APPLY_COLUMNS.invokeExact(op, leftColumn, rightColumn);
+    }
+
+    @Benchmark
+    public double[] doubleColumns() throws Throwable {
+        Calculator.OPERATOR_APPLY_DOUBLE_COLUMNS.invokeExact(op, leftDoubles, rightDoubles, doubleResult);
+        return doubleResult;
+    }
+}
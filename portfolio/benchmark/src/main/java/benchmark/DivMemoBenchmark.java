@@ -0,0 +1,85 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operator.DIV のメモ化（Operator.enableMemo）のベンチマーク。
+ *
+ * distinctPairs 種類の被演算子の組を繰り返し除算し、
+ * メモ化の有無でスループットを比較する。
+ * キャッシュは全スレッドで共有する（@Threads で同時アクセス時も計測できる）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+@Fork(1)
+public class DivMemoBenchmark {
+
+    @Param({"false", "true"})
+    public boolean memo;
+
+    //繰り返し現れる被演算子の組の種類数
+    @Param({"16", "4096"})
+    public int distinctPairs;
+
+    //キャッシュ容量
+    @Param({"1024"})
+    public int capacity;
+
+    private Object div;
+    private BigDecimal[] lefts;
+    private BigDecimal[] rights;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        div = Calculator.operator("DIV");
+        Random random = new Random(42);
+        lefts = new BigDecimal[distinctPairs];
+        rights = new BigDecimal[distinctPairs];
+        for (int i = 0; i < distinctPairs; i++) {
+            //連続計算後の値を想定した、long に収まらない被演算子
+            lefts[i] = new BigDecimal(random.nextInt(99_999_999) + "." + random.nextInt(99_999_999) + "1234567890123");
+            rights[i] = new BigDecimal(random.nextInt(9_999) + 1 + ".0254");
+        }
+        if (memo) {
+            Object cache = (Object) Calculator.OPERATOR_ENABLE_MEMO.invokeExact(div, capacity);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        Calculator.OPERATOR_DISABLE_MEMO.invokeExact(div);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public BigDecimal divide(Cursor cursor) throws Throwable {
+        int i = cursor.next;
+        cursor.next = (i + 1) % distinctPairs;
+        return (BigDecimal) Calculator.OPERATOR_APPLY.invokeExact(div, lefts[i], rights[i]);
+    }
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FormatterUtil.formatForDisplay のベンチマーク。
+ *
+ * 通常表示・8 桁境界・指数表記（巨大値を含む）の各ケースを計測する。
+ * formatForDisplay は同じ値の繰り返し（整形結果キャッシュが効く）、
+ * formatDistinct は毎回異なる値（キャッシュが効かない）を整形する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatterBenchmark {
+
+    /*
+     * small         : 小さい整数
+     * fraction      : 除算結果（scale 10、末尾 0 あり）
+     * boundary8     : 8 桁ちょうど（通常表示の上限）
+     * boundary9     : 9 桁（指数表記の下限）
+     * hugeExponent  : 「×」の連続で桁が伸びた巨大値
+     */
+    @Param({"small", "fraction", "boundary8", "boundary9", "hugeExponent"})
+    public String value;
+
+    //キャッシュサイズより十分多い、互いに異なる値の数
+    private static final int DISTINCT_VALUES = 1024;
+
+    private BigDecimal input;
+    private BigDecimal[] distinct;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        switch (value) {
+            case "small":
+                input = new BigDecimal("42");
+                break;
+            case "fraction":
+                input = new BigDecimal("0.3333333300");
+                break;
+            case "boundary8":
+                input = new BigDecimal("99999999.50");
+                break;
+            case "boundary9":
+                input = new BigDecimal("123456789");
+                break;
+            case "hugeExponent":
+                input = new BigDecimal("98765432.1").pow(64);
+                break;
+            default:
+                throw new IllegalArgumentException(value);
+        }
+        //同じ大きさで末尾の桁だけが異なる値を用意する
+        distinct = new BigDecimal[DISTINCT_VALUES];
+        BigDecimal ulp = input.ulp();
+        for (int i = 0; i < DISTINCT_VALUES; i++) {
+            distinct[i] = input.add(ulp.multiply(BigDecimal.valueOf(i)));
+        }
+    }
+
+    @Benchmark
+    public String formatForDisplay() throws Throwable {
+        return (String) Calculator.FORMAT_FOR_DISPLAY.invokeExact(input, Calculator.MAX_DIGITS);
+    }
+
+    @Benchmark
+    public String formatDistinct() throws Throwable {
+        BigDecimal value = distinct[next];
+        next = (next + 1) & (DISTINCT_VALUES - 1);
+        return (String) Calculator.FORMAT_FOR_DISPLAY.invokeExact(value, Calculator.MAX_DIGITS);
+    }
+}
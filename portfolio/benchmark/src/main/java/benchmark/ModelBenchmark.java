@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CalculatorModel のキー入力シーケンスのベンチマーク。
+ *
+ * 「被演算子 (演算子 被演算子) × chainLength =」の入力を
+ * appendDigit / appendDot / inputOperator / equalsOp で流し込み、
+ * 最後に getDisplayText で表示文字列を得るまでを 1 操作として計測する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    //被演算子の入力文字列（小さい値 / 小数 / 8 桁上限）
+    @Param({"7", "3.25", "98765432"})
+    public String operand;
+
+    //演算子の連続回数
+    @Param({"1", "8", "64"})
+    public int chainLength;
+
+    //演算子の並び（ADD / SUB / MUL / DIV を順に使う）
+    @Param({"ADD,SUB,MUL,DIV"})
+    public String operators;
+
+    private Object model;
+    private char[] operandKeys;
+    private Object[] chain;
+
+    @Setup
+    public void setUp() throws Throwable {
+        model = (Object) Calculator.NEW_MODEL.invokeExact();
+        operandKeys = operand.toCharArray();
+        String[] names = operators.split(",");
+        chain = new Object[chainLength];
+        for (int i = 0; i < chainLength; i++) {
+            chain[i] = Calculator.operator(names[i % names.length]);
+        }
+    }
+
+    @Benchmark
+    public String keystrokeChain() throws Throwable {
+        Calculator.CLEAR_ALL.invokeExact(model);
+        typeOperand();
+        for (Object operator : chain) {
+            Calculator.INPUT_OPERATOR.invokeExact(model, operator);
+            typeOperand();
+        }
+        Calculator.EQUALS_OP.invokeExact(model);
+        return (String) Calculator.GET_DISPLAY_TEXT.invokeExact(model);
+    }
+
+    @Benchmark
+    public String digitEntry() throws Throwable {
+        Calculator.CLEAR_ALL.invokeExact(model);
+        typeOperand();
+        return (String) Calculator.GET_DISPLAY_TEXT.invokeExact(model);
+    }
+
+    private void typeOperand() throws Throwable {
+        for (char key : operandKeys) {
+            if (key == '.') {
+                Calculator.APPEND_DOT.invokeExact(model);
+            } else {
+                Calculator.APPEND_DIGIT.invokeExact(model, key);
+            }
+        }
+    }
+}
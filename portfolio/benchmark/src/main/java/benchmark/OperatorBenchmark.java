@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operator.apply のベンチマーク。
+ *
+ * 被演算子の大きさ（magnitude）ごとに各演算子の apply を計測する。
+ * DIV は scale 10 / HALF_UP の除算を含む。
+ * applyScaled は固定小数点の高速経路で、long に収まらない場合は
+ * apply へのフォールバックまでを含めて計測する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperatorBenchmark {
+
+    @Param({"ADD", "SUB", "MUL", "DIV"})
+    public String operator;
+
+    /*
+     * small    : 1 桁の整数
+     * decimal  : 小数を含む入力相当の値
+     * maxInput : 8 桁上限の入力値
+     * chained  : 連続計算で桁が伸びた値
+     */
+    @Param({"small", "decimal", "maxInput", "chained"})
+    public String magnitude;
+
+    private Object op;
+    private BigDecimal left;
+    private BigDecimal right;
+    private long leftUnscaled;
+    private int leftScale;
+    private long rightUnscaled;
+    private int rightScale;
+    private boolean fitsInLong;
+    private Object scaledResult;
+
+    @Setup
+    public void setUp() throws Throwable {
+        op = Calculator.operator(operator);
+        switch (magnitude) {
+            case "small":
+                left = new BigDecimal("7");
+                right = new BigDecimal("3");
+                break;
+            case "decimal":
+                left = new BigDecimal("1234.5678");
+                right = new BigDecimal("0.375");
+                break;
+            case "maxInput":
+                left = new BigDecimal("98765432");
+                right = new BigDecimal("12345678");
+                break;
+            case "chained":
+                left = new BigDecimal("98765432").pow(6).add(new BigDecimal("0.0000000001"));
+                right = new BigDecimal("12345678.9");
+                break;
+            default:
+                throw new IllegalArgumentException(magnitude);
+        }
+        //long に収まらない値は BigDecimal のまま（フォールバック経路を計測する）
+        leftUnscaled = left.unscaledValue().longValue();
+        leftScale = left.scale();
+        rightUnscaled = right.unscaledValue().longValue();
+        rightScale = right.scale();
+        fitsInLong = left.precision() <= 18 && right.precision() <= 18;
+        scaledResult = (Object) Calculator.NEW_SCALED_VALUE.invokeExact();
+    }
+
+    @Benchmark
+    public BigDecimal apply() throws Throwable {
+        return (BigDecimal) Calculator.OPERATOR_APPLY.invokeExact(op, left, right);
+    }
+
+    @Benchmark
+    public Object applyScaled() throws Throwable {
+        if (fitsInLong && (boolean) Calculator.OPERATOR_APPLY_SCALED.invokeExact(op, leftUnscaled, leftScale, rightUnscaled, rightScale, scaledResult)) {
+            return scaledResult;
+        }
+        return (BigDecimal) Calculator.OPERATOR_APPLY.invokeExact(op, left, right);
+    }
+}
@@ -0,0 +1,35 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operator.fromDisplay（UI 表示文字 → Operator）のベンチマーク。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperatorLookupBenchmark {
+
+    //UI 表示文字（"?" は未対応の演算子）
+    @Param({"+", "-", "×", "÷", "?"})
+    public String display;
+
+    @Benchmark
+    public Object fromDisplay() throws Throwable {
+        return (Object) Calculator.OPERATOR_FROM_DISPLAY.invokeExact(display);
+    }
+}
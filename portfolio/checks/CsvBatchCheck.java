@@ -0,0 +1,149 @@
+/**
+ * CSV 一括計算の照合チェック。
+ *
+ * 乱数で作成した CSV を CsvBatchEvaluator で計算し、各行の出力が
+ * 同じ計算を CalculatorModel にキー入力した場合の表示と一致することを確かめる。
+ * チャンクの大きさ・スレッド数を変えて実行し、出力の行数と順序も確かめる。
+ *
+ * 【作成する行】
+ * - 「左辺,演算子,右辺」（8 桁以内の数値。キー入力と同じ値になる）
+ * - long に収まらない数値・指数表記の行（PrecisionPolicy による BigDecimal の計算と比較する）
+ * - キー列の行・空行・解釈できない行・入力の桁数の上限を超える行・表示範囲外の指数の行
+ *
+ * 使い方: java CsvBatchCheck [行数]（不一致があれば終了コード 1）
+ */
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CsvBatchCheck {
+    private static final String[] OPERATORS = {"+", "-", "×", "÷", "*", "/", "^", "√", "%", "r", "xʸ", "1/x"};
+    private static final Operator[] BINARY = {Operator.ADD, Operator.SUB, Operator.MUL, Operator.DIV};
+    private static final int DIGITS = CsvBatchEvaluator.DEFAULT_MAX_DIGITS;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path input = Files.createTempFile("batch-check", ".csv");
+        Path output = Files.createTempFile("batch-check", ".out");
+        int failures = 0;
+        try {
+            List<String> expected = write(input, count, new Random(1));
+            for (int chunkSize : new int[] {1000, 65536, CsvBatchEvaluator.DEFAULT_CHUNK_SIZE}) {
+                for (int threads : new int[] {1, 4}) {
+                    try (CsvBatchEvaluator evaluator = new CsvBatchEvaluator(threads, chunkSize, DIGITS);
+                         FileChannel channel = FileChannel.open(output,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        evaluator.evaluate(input, channel);
+                    }
+                    failures += compare(Files.readAllLines(output), expected, "chunk=" + chunkSize + " threads=" + threads);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+        System.out.printf("CsvBatchCheck: rows=%d runs=6 failures=%d%n", count, failures);
+        if (failures > 0) System.exit(1);
+    }
+
+    //CSV を書き込み、各行の期待する出力を返す
+    private static List<String> write(Path input, int count, Random random) throws IOException {
+        List<String> expected = new ArrayList<>(count);
+        CalculatorModel model = new CalculatorModel();
+        model.setErrorReporting(false);
+        PrecisionPolicy precision = PrecisionPolicy.defaultPolicy();
+        try (BufferedWriter writer = Files.newBufferedWriter(input)) {
+            for (int i = 0; i < count; i++) {
+                int kind = random.nextInt(100);
+                String line;
+                String result;
+                if (kind < 80) {
+                    //キー入力と同じ値になる行
+                    String operatorText = OPERATORS[random.nextInt(OPERATORS.length)];
+                    Operator operator = operatorText.length() == 1
+                            ? Operator.fromKey(operatorText.charAt(0)) : Operator.fromDisplay(operatorText);
+                    String left = number(random);
+                    String right = operator == Operator.POW ? String.valueOf(random.nextInt(7) - 2) : number(random);
+                    line = left + "," + operatorText + "," + (operator.isUnary() ? "" : right);
+                    result = type(model, left + operator.getKey() + (operator.isUnary() ? "" : right));
+                } else if (kind < 88) {
+                    //long に収まらない・指数表記の数値
+                    BigDecimal left = new BigDecimal(new BigInteger(100, random), random.nextInt(30));
+                    BigDecimal right = new BigDecimal(new BigInteger(80, random), random.nextInt(30)).add(BigDecimal.ONE);
+                    Operator operator = BINARY[random.nextInt(BINARY.length)];
+                    line = left + " , " + operator.getKey() + " , " + right.toString().replace('E', 'e');
+                    result = FormatterUtil.formatForDisplay(precision.apply(operator, left, right), DIGITS);
+                } else if (kind < 93) {
+                    //キー列の行
+                    String keys = number(random) + "+" + number(random) + "×" + number(random) + (random.nextBoolean() ? "=" : "");
+                    line = keys;
+                    result = type(model, keys);
+                } else if (kind < 95) {
+                    line = "";
+                    result = "";
+                } else if (kind < 97) {
+                    line = "abc,+,1";
+                    result = "ERROR";
+                } else if (kind < 99) {
+                    line = "123456789+1";//入力の桁数の上限を超える
+                    result = "ERROR";
+                } else {
+                    line = "1e-2147483647,*,10";//表示範囲外の指数
+                    result = "ERROR";
+                }
+                writer.write(line);
+                writer.write(random.nextInt(10) == 0 ? "\r\n" : "\n");
+                expected.add(result);
+            }
+        }
+        return expected;
+    }
+
+    //キー列を入力し、= を押した後の表示を返す
+    private static String type(CalculatorModel model, String keys) {
+        model.clearAll();
+        for (int i = 0; i < keys.length(); i++) {
+            InputDispatcher.dispatch(model, keys.charAt(i));
+        }
+        model.equalsOp();
+        return model.getDisplayText();
+    }
+
+    //8 桁以内の数値（負号・小数点を含む場合がある）
+    private static String number(Random random) {
+        if (random.nextInt(20) == 0) return "0";
+        StringBuilder text = new StringBuilder();
+        if (random.nextInt(4) == 0) text.append('-');
+        int digits = 1 + random.nextInt(DIGITS);
+        int dot = random.nextInt(3) == 0 ? random.nextInt(digits) : -1;
+        for (int i = 0; i < digits; i++) {
+            if (i == dot && i > 0) text.append('.');
+            text.append((char) ('0' + (i == 0 && digits > 1 ? 1 + random.nextInt(9) : random.nextInt(10))));
+        }
+        return text.toString();
+    }
+
+    private static int compare(List<String> actual, List<String> expected, String label) {
+        if (actual.size() != expected.size()) {
+            System.err.println(label + ": " + actual.size() + " lines, expected " + expected.size());
+            return 1;
+        }
+        int failures = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            if (!actual.get(i).equals(expected.get(i))) {
+                if (failures++ < 5) {
+                    System.err.println(label + ": line " + (i + 1) + " " + actual.get(i) + " != " + expected.get(i));
+                }
+            }
+        }
+        return failures;
+    }
+}
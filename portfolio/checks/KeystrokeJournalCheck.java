@@ -0,0 +1,116 @@
+/**
+ * キーストロークジャーナルの復元チェック。
+ *
+ * ジャーナルを付けた Model と、付けない参照用の Model に同じ乱数のキー列を入力し、
+ * ジャーナルを開き直して復元した Model の状態が参照用の Model と一致することを確かめる。
+ * 閉じてから開き直す場合と、flush のみで閉じずに開き直す場合（異常終了）を交互に行い、
+ * スナップショットの間隔をまたぐ件数を入力する。
+ * 比較する状態は、現在の状態（左辺値・入力中の数値・演算子・状態）・元に戻す履歴・表示文字列とする。
+ *
+ * 使い方: java KeystrokeJournalCheck [回数]（不一致があれば終了コード 1）
+ */
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class KeystrokeJournalCheck {
+    // 入力するキー（元に戻す・やり直しを多めに含める）
+    private static final String KEYS = "0123456789.+-×÷=C√^%rzzzyy0123456789+×";
+
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        Path directory = Files.createTempDirectory("journal-check");
+        Random random = new Random(1);
+        CalculatorModel reference = new CalculatorModel();
+        reference.setErrorReporting(false);
+        long total = 0;
+        int failures = 0;
+        try {
+            for (int round = 0; round <= rounds; round++) {
+                CalculatorModel model = new CalculatorModel();
+                model.setErrorReporting(false);
+                KeystrokeJournal journal = KeystrokeJournal.open(directory, model);
+                String difference = difference(model, reference);
+                if (difference != null) {
+                    failures++;
+                    System.err.println("round " + round + " (" + total + " keys): " + difference);
+                }
+                if (round == rounds) {
+                    journal.close();
+                    break;
+                }
+                int count = 100_000 + random.nextInt(200_000);
+                for (int i = 0; i < count; i++) {
+                    char key = KEYS.charAt(random.nextInt(KEYS.length()));
+                    press(model, key);
+                    press(reference, key);
+                }
+                total += count;
+                if (round % 2 == 0) {
+                    journal.close();
+                } else {
+                    journal.flush();//閉じずに開き直す（異常終了）
+                }
+            }
+        } finally {
+            delete(directory);
+        }
+        System.out.printf("KeystrokeJournalCheck: rounds=%d keys=%d failures=%d%n", rounds, total, failures);
+        if (failures > 0) System.exit(1);
+    }
+
+    private static void press(CalculatorModel model, char key) {
+        try {
+            InputDispatcher.dispatch(model, key);
+        } catch (RuntimeException e) {
+            // 画面操作時と同様に、そのキー入力のみを破棄する
+        }
+    }
+
+    //状態の違い（一致すれば null）
+    private static String difference(CalculatorModel model, CalculatorModel reference) {
+        if (!model.getDisplayText().equals(reference.getDisplayText())) {
+            return "display " + model.getDisplayText() + " != " + reference.getDisplayText();
+        }
+        if (!same(model.snapshot(), reference.snapshot())) {
+            return "state differs";
+        }
+        CalculatorModel.Snapshot[] history = model.historySnapshot();
+        CalculatorModel.Snapshot[] expected = reference.historySnapshot();
+        if (history.length != expected.length || model.historyPosition() != reference.historyPosition()) {
+            return "history " + model.historyPosition() + "/" + history.length
+                    + " != " + reference.historyPosition() + "/" + expected.length;
+        }
+        for (int i = 0; i < history.length; i++) {
+            if (!same(history[i], expected[i])) {
+                return "history[" + i + "] differs";
+            }
+        }
+        return null;
+    }
+
+    private static boolean same(CalculatorModel.Snapshot a, CalculatorModel.Snapshot b) {
+        return Objects.equals(a.leftOperand, b.leftOperand)
+                && a.inputStarted == b.inputStarted
+                && a.inputNegative == b.inputNegative
+                && a.inputHasDot == b.inputHasDot
+                && a.inputDigits == b.inputDigits
+                && a.inputFractionDigits == b.inputFractionDigits
+                && a.inputUnscaled == b.inputUnscaled
+                && Objects.equals(a.computedInput, b.computedInput)
+                && a.pendingOp == b.pendingOp
+                && a.state == b.state;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * 固定小数点演算の照合チェック。
+ *
+ * Operator.applyScaled（ScaledArithmetic）の結果が、同じ値の BigDecimal による
+ * Operator.apply の結果と unscaled 値・scale ともに一致することを、
+ * 乱数の値と境界値（long の最大・最小付近、scale の差が大きい組など）で確かめる。
+ * applyScaled が false（BigDecimal へのフォールバック）を返した組は照合しない。
+ *
+ * 使い方: java ScaledArithmeticCheck [件数]（不一致があれば終了コード 1）
+ */
+import java.math.BigDecimal;
+import java.util.Random;
+
+public class ScaledArithmeticCheck {
+    private static final Operator[] OPERATORS = {Operator.ADD, Operator.SUB, Operator.MUL, Operator.DIV};
+    private static final long[] EDGE_VALUES = {
+        0, 1, -1, 7, -7, 10, 99999999, -99999999, 999999999999999999L, -999999999999999999L,
+        Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE / 10, Long.MIN_VALUE / 10, 3037000499L, -3037000500L
+    };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        Random random = new Random(1);
+        ScaledValue result = new ScaledValue();
+        long checked = 0;
+        long fallbacks = 0;
+        int failures = 0;
+        for (int i = 0; i < count; i++) {
+            long left = value(random);
+            long right = value(random);
+            int leftScale = scale(random);
+            int rightScale = scale(random);
+            for (Operator operator : OPERATORS) {
+                int outcome = check(operator, left, leftScale, right, rightScale, result);
+                if (outcome < 0) {
+                    if (failures++ < 10) {
+                        System.err.println("mismatch: " + BigDecimal.valueOf(left, leftScale) + " " + operator.getDisplay()
+                                + " " + BigDecimal.valueOf(right, rightScale));
+                    }
+                } else if (outcome == 0) {
+                    fallbacks++;
+                } else {
+                    checked++;
+                }
+            }
+        }
+        System.out.printf("ScaledArithmeticCheck: checked=%d fallbacks=%d failures=%d%n", checked, fallbacks, failures);
+        if (failures > 0) System.exit(1);
+    }
+
+    //1: 一致、0: フォールバック、-1: 不一致
+    private static int check(Operator operator, long left, int leftScale, long right, int rightScale, ScaledValue result) {
+        BigDecimal expected;
+        try {
+            expected = operator.apply(BigDecimal.valueOf(left, leftScale), BigDecimal.valueOf(right, rightScale));
+        } catch (ArithmeticException e) {
+            //0 除算は固定小数点でも同じく例外となること
+            try {
+                operator.applyScaled(left, leftScale, right, rightScale, result);
+                return -1;
+            } catch (ArithmeticException expectedException) {
+                return 1;
+            }
+        }
+        if (!operator.applyScaled(left, leftScale, right, rightScale, result)) {
+            return 0;
+        }
+        boolean same = result.getUnscaled() == expected.unscaledValue().longValue()
+                && expected.unscaledValue().bitLength() < Long.SIZE
+                && result.getScale() == expected.scale();
+        return same ? 1 : -1;
+    }
+
+    //境界値・桁数を散らした値
+    private static long value(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return EDGE_VALUES[random.nextInt(EDGE_VALUES.length)];
+            case 1:
+                return random.nextLong();
+            default:
+                long bound = 1L << random.nextInt(62);
+                return random.nextLong() % bound;
+        }
+    }
+
+    private static int scale(Random random) {
+        return random.nextInt(10) == 0 ? random.nextInt(40) - 10 : random.nextInt(11);
+    }
+}
@@ -0,0 +1,18 @@
+#!/bin/sh
+# 電卓アプリの jar と AppCDS アーカイブ（アプリのクラスを含む共有アーカイブ）を作成する。
+# 起動時間計測（--startup-probe）を学習実行とし、そこで読み込まれたクラスをアーカイブする。
+# 画面を表示するため、ディスプレイのある環境で実行すること。
+#
+# 使い方: scripts/build-cds.sh
+# 起動:   java -XX:SharedArchiveFile=build/calculator.jsa -jar build/calculator.jar
+set -e
+cd "$(dirname "$0")/.."
+
+rm -rf build/classes
+mkdir -p build/classes
+javac -encoding UTF-8 -d build/classes src/*.java
+jar --create --file build/calculator.jar --main-class CalculatorApp -C build/classes .
+
+rm -f build/calculator.jsa
+java -XX:ArchiveClassesAtExit=build/calculator.jsa -jar build/calculator.jar --startup-probe
+echo "created build/calculator.jsa"
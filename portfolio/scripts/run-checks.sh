@@ -0,0 +1,16 @@
+#!/bin/sh
+# 高速経路・復元処理の照合チェックを実行する（checks/ のクラス）。
+# 本体（src/）とチェックを build/checks にコンパイルし、各チェックを順に実行する。
+# いずれかのチェックで不一致があれば終了コード 1 で終了する。
+#
+# 使い方: scripts/run-checks.sh
+set -e
+cd "$(dirname "$0")/.."
+
+rm -rf build/checks
+mkdir -p build/checks
+javac -encoding UTF-8 -d build/checks src/*.java checks/*.java
+
+java -cp build/checks ScaledArithmeticCheck
+java -cp build/checks KeystrokeJournalCheck
+java -cp build/checks CsvBatchCheck
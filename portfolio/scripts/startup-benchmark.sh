@@ -0,0 +1,32 @@
+#!/bin/sh
+# 起動時間（画面表示まで・最初の計算結果まで）を AppCDS なし／ありで計測し、平均を出力する。
+# 事前に scripts/build-cds.sh を実行しておくこと。
+#
+# 使い方: scripts/startup-benchmark.sh [回数]
+set -e
+cd "$(dirname "$0")/.."
+RUNS=${1:-10}
+
+measure() {
+    label=$1
+    shift
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        java "$@" -jar build/calculator.jar --startup-probe
+        i=$((i + 1))
+    done | awk -v label="$label" '
+        {
+            for (f = 1; f <= NF; f++) {
+                split($f, kv, "=")
+                sum[kv[1]] += kv[2]
+            }
+            n++
+        }
+        END {
+            printf "%-8s runs=%d visibleFrameMs=%.1f firstResultMs=%.1f\n",
+                label, n, sum["visibleFrameMs"] / n, sum["firstResultMs"] / n
+        }'
+}
+
+measure "default"
+measure "appcds" -XX:SharedArchiveFile=build/calculator.jsa
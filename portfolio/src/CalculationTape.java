@@ -0,0 +1,203 @@
+/**
+ * 計算履歴（テープ）クラス。
+ *
+ * 本クラスは、CalculatorModel で確定した計算（左辺・演算子・右辺・結果・時刻）を
+ * 1 件ずつ追記して保持する。
+ *
+ * 【格納方式】
+ * - 各計算は CSV の 1 行（UTF-8）としてダイレクトバッファ（ヒープ外）のチャンクに追記する
+ *   （1 行がチャンクをまたがないよう、入りきらない場合は次のチャンクに書く）
+ * - 各行の位置（チャンク番号・チャンク内の位置）は、同じくヒープ外の索引チャンクに 8 バイトで持つ
+ * - 計算ごとのオブジェクトは保持しないため、件数が増えても GC の負担は増えない
+ * - CSV への出力はチャンクをそのまま FileChannel に書き込む（ヒープへの複写は行わない）
+ *
+ * 【スレッド】
+ * 追記は Model を操作する 1 スレッドからのみ行う。
+ * 読み出し（size / get / indexOf / exportCsv）は他のスレッド（EDT など）からも行える。
+ * 件数は行を書き終えた後に公開するため、読み出し側は size() 件目までを参照できる。
+ */
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public final class CalculationTape {
+    // 行を格納するチャンクの大きさ（1 行がこれを超える場合は、その行の大きさのチャンクを使う）
+    private static final int CHUNK_SIZE = 1 << 20;
+    // 1 つの索引チャンクが持つ行数
+    private static final int INDEX_SHIFT = 16;
+    private static final int INDEX_CHUNK_ENTRIES = 1 << INDEX_SHIFT;
+    private static final byte[] CSV_HEADER = "timestamp,left,operator,right,result\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte NEWLINE = '\n';
+
+    // 行のチャンク・索引チャンク（追加時は配列ごと置き換え、読み出し側は参照を読み直す）
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile ByteBuffer[] indexChunks = new ByteBuffer[0];
+    private int[] chunkEnds = new int[0];//書き終えたチャンクの使用済みの大きさ（chunks より先に更新する）
+    private volatile int size;//公開済みの行数
+    private int chunkPosition;//現在のチャンクの書き込み位置（追記スレッドのみ）
+    private final StringBuilder line = new StringBuilder(64);//行の組み立て用（追記スレッドのみ）
+
+    // ==================================================
+    // 追記（CalculatorModel から呼ばれる）
+    // ==================================================
+    /**
+     * 計算を 1 件追記する。
+     *
+     * @param right 右辺値（単項演算の場合は null）
+     */
+    void record(BigDecimal left, Operator operator, BigDecimal right, BigDecimal result) {
+        line.setLength(0);
+        line.append(System.currentTimeMillis()).append(',')
+            .append(left.toString()).append(',')
+            .append(operator.getDisplay()).append(',')
+            .append(right == null ? "" : right.toString()).append(',')
+            .append(result.toString()).append('\n');
+        append(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void append(byte[] bytes) {
+        ByteBuffer[] current = chunks;
+        if (current.length == 0 || chunkPosition + bytes.length > current[current.length - 1].capacity()) {
+            if (current.length > 0) {
+                int[] ends = Arrays.copyOf(chunkEnds, current.length);
+                ends[current.length - 1] = chunkPosition;
+                chunkEnds = ends;
+            }
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, bytes.length));
+            chunks = current;
+            chunkPosition = 0;
+        }
+        int chunk = current.length - 1;
+        current[chunk].put(chunkPosition, bytes);
+
+        int index = size;
+        ByteBuffer[] indexes = indexChunks;
+        if ((index >>> INDEX_SHIFT) == indexes.length) {
+            indexes = Arrays.copyOf(indexes, indexes.length + 1);
+            indexes[indexes.length - 1] = ByteBuffer.allocateDirect(INDEX_CHUNK_ENTRIES * Long.BYTES);
+            indexChunks = indexes;
+        }
+        indexes[index >>> INDEX_SHIFT].putLong((index & (INDEX_CHUNK_ENTRIES - 1)) * Long.BYTES,
+                ((long) chunk << 32) | chunkPosition);
+        chunkPosition += bytes.length;
+        size = index + 1;//行と索引を書き終えてから公開する
+    }
+
+    // ==================================================
+    // 読み出し
+    // ==================================================
+    //記録済みの件数
+    public int size() {
+        return size;
+    }
+
+    /**
+     * index 件目の計算を CSV の 1 行（改行なし）として返す。
+     *
+     * @throws IndexOutOfBoundsException index が範囲外の場合
+     */
+    public String get(int index) {
+        ByteBuffer row = row(index);
+        byte[] bytes = new byte[row.remaining()];
+        row.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * from 件目以降で、query を含む最初の計算の位置を返す（末尾まで見つからなければ先頭から探す）。
+     * 行のバイト列を直接比較するため、行ごとの文字列は生成しない。
+     *
+     * @return 見つかった位置（見つからなければ -1）
+     */
+    public int indexOf(String query, int from) {
+        byte[] pattern = query.getBytes(StandardCharsets.UTF_8);
+        int count = size;
+        if (count == 0) return -1;
+        int start = Math.floorMod(from, count);
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % count;
+            if (contains(row(index), pattern)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    //index 件目の行（改行を除く）を指すバッファ
+    private ByteBuffer row(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        long location = location(index);
+        ByteBuffer chunk = chunks[(int) (location >>> 32)].duplicate();
+        int start = (int) location;
+        int end = start;
+        while (chunk.get(end) != NEWLINE) {
+            end++;
+        }
+        return chunk.limit(end).position(start);
+    }
+
+    private static boolean contains(ByteBuffer row, byte[] pattern) {
+        int start = row.position();
+        int last = row.limit() - pattern.length;
+        for (int i = start; i <= last; i++) {
+            int j = 0;
+            while (j < pattern.length && row.get(i + j) == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) return true;
+        }
+        return false;
+    }
+
+    // ==================================================
+    // 出力
+    // ==================================================
+    /**
+     * 記録済みの計算を CSV ファイルに書き出す（既存のファイルは置き換える）。
+     * チャンクの内容をそのまま書き込み、行ごとの変換は行わない。
+     *
+     * @return 書き出した件数
+     */
+    public int exportCsv(Path file) throws IOException {
+        //書き出す範囲は呼び出し時点の件数までとする
+        int count = size;
+        ByteBuffer[] current = chunks;
+        int[] ends = chunkEnds;
+        int lastChunk = -1;
+        int lastEnd = 0;
+        if (count > 0) {
+            ByteBuffer last = row(count - 1);
+            lastChunk = (int) (location(count - 1) >>> 32);
+            lastEnd = last.limit() + 1;//改行を含める
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.wrap(CSV_HEADER));
+            for (int chunk = 0; chunk <= lastChunk; chunk++) {
+                ByteBuffer data = current[chunk].duplicate();
+                data.limit(chunk == lastChunk ? lastEnd : ends[chunk]);
+                writeFully(channel, data);
+            }
+        }
+        return count;
+    }
+
+    //index 件目の行の位置（上位 32 ビットがチャンク番号、下位 32 ビットがチャンク内の位置）
+    private long location(int index) {
+        return indexChunks[index >>> INDEX_SHIFT].getLong((index & (INDEX_CHUNK_ENTRIES - 1)) * Long.BYTES);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
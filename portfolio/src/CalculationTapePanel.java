@@ -0,0 +1,154 @@
+/**
+ * 計算履歴（テープ）の表示パネル。
+ *
+ * 本クラスは、CalculationTape の内容を一覧表示し、検索と CSV 出力の操作を提供する。
+ * 一覧（JList）の行の高さ・幅は固定とし、表示範囲の行のみをテープから読み出して描画する
+ * （件数が多くても、全行の読み出しや大きさの計算は行わない）。
+ * テープへの追記は Model のスレッドで行われるため、件数の変化は一定間隔で確認して反映する。
+ */
+import javax.swing.*;
+import java.awt.*;
+import java.nio.file.Path;
+
+public class CalculationTapePanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    // 件数の変化を確認する間隔
+    private static final int REFRESH_MILLIS = 200;
+    // 1 行の大きさ（全行で共通）
+    private static final int CELL_WIDTH = 240;
+    private static final int CELL_HEIGHT = 18;
+    private static final Font CELL_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    private final CalculationTape tape;
+    private final TapeListModel listModel = new TapeListModel();
+    private final JList<String> list = new JList<>(listModel);
+    private final JTextField searchField = new JTextField();
+
+    public CalculationTapePanel(CalculationTape tape) {
+        super(new BorderLayout(0, 5));
+        this.tape = tape;
+        setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 10));
+
+        list.setFont(CELL_FONT);
+        list.setFixedCellWidth(CELL_WIDTH);
+        list.setFixedCellHeight(CELL_HEIGHT);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        add(new JScrollPane(list), BorderLayout.CENTER);
+
+        // 検索（Enter で、選択中の行の次から検索する）
+        searchField.setToolTipText("Search");
+        searchField.addActionListener(event -> search());
+        add(searchField, BorderLayout.NORTH);
+
+        JButton export = new JButton("CSV");
+        export.addActionListener(event -> export());
+        add(export, BorderLayout.SOUTH);
+
+        new Timer(REFRESH_MILLIS, event -> listModel.refresh()).start();
+    }
+
+    //------------------------
+    //検索
+    //------------------------
+    private void search() {
+        String query = searchField.getText();
+        if (query.isEmpty()) {
+            return;
+        }
+        int from = list.getSelectedIndex() + 1;
+        // 件数が多い場合に EDT を止めないよう、検索は別スレッドで行う
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return tape.indexOf(query, from);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    int index = get();
+                    if (index < 0) {
+                        Toolkit.getDefaultToolkit().beep();
+                        return;
+                    }
+                    listModel.refresh();
+                    list.setSelectedIndex(index);
+                    list.ensureIndexIsVisible(index);
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    ErrorHandler.handle(e);
+                }
+            }
+        }.execute();
+    }
+
+    //------------------------
+    //CSV 出力
+    //------------------------
+    private void export() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("calculation-tape.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return tape.exportCsv(file);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    ErrorHandler.handle(e);
+                }
+            }
+        }.execute();
+    }
+
+    //------------------------
+    //一覧の内容（表示範囲の行のみテープから読み出す）
+    //------------------------
+    private class TapeListModel extends AbstractListModel<String> {
+        private static final long serialVersionUID = 1L;
+
+        private int size;//一覧に反映済みの件数（EDT のみ）
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return toDisplay(tape.get(index));
+        }
+
+        //追記された行を一覧に反映する（末尾を表示中なら、追記後も末尾を表示する）
+        void refresh() {
+            int current = tape.size();
+            if (current == size) {
+                return;
+            }
+            boolean atEnd = size == 0 || list.getLastVisibleIndex() >= size - 1;
+            int previous = size;
+            size = current;
+            fireIntervalAdded(this, previous, current - 1);
+            if (atEnd) {
+                list.ensureIndexIsVisible(current - 1);
+            }
+        }
+    }
+
+    //CSV の 1 行（timestamp,left,operator,right,result）を表示用の式にする
+    private static String toDisplay(String row) {
+        String[] fields = row.split(",", -1);
+        if (fields[3].isEmpty()) {
+            return fields[2] + " " + fields[1] + " = " + fields[4];//単項演算
+        }
+        return fields[1] + " " + fields[2] + " " + fields[3] + " = " + fields[4];
+    }
+}
@@ -10,31 +10,119 @@
 
 public class CalculatorApp {
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // --replay: Swing を使わずにキーストローク列を再生する
+        if (args.length > 0 && args[0].equals("--replay")) {
+            KeystrokeReplayer.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // --serve: ループバックの計算サービスとして起動する
+        if (args.length > 0 && args[0].equals("--serve")) {
+            CalculatorService.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // --batch: CSV ファイルの各行を一括で計算する
+        if (args.length > 0 && args[0].equals("--batch")) {
+            CsvBatchEvaluator.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // --startup-probe: 起動時間を計測して終了する
+        if (args.length > 0 && args[0].equals("--startup-probe")) {
+            StartupProbe.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // --journal <dir>: 入力を記録し、前回終了時の状態から再開する
+        java.nio.file.Path journalDirectory = null;
+        if (args.length > 1 && args[0].equals("--journal")) {
+            journalDirectory = java.nio.file.Paths.get(args[1]);
+        }
+        final java.nio.file.Path journalPath = journalDirectory;
 
+        // 計算処理のクラス読み込み・初期化は EDT とは別のスレッドで先に済ませておく
+        warmUp();
         //Swing の画面処理をイベントディスパッチスレッド（EDT） で実行させる
-        javax.swing.SwingUtilities.invokeLater(() -> {
-
-            // ------------------------
-            // 状態・計算ロジック
-            // ------------------------
-            CalculatorModel model = new CalculatorModel();
-
-            // ------------------------
-            //画面表示
-            // ------------------------
-            CalculatorFrame frame = new CalculatorFrame();
-
-            // ------------------------
-            // 入力制御
-            // ------------------------
-            CalculatorController controller =new CalculatorController(model, frame);
-            // View と Controller を関連付ける
-            frame.bindController(controller);
-            // 画面表示
-            frame.show();
+        javax.swing.SwingUtilities.invokeLater(() -> createAndShow(journalPath, null));
+    }
+
+    /**
+     * MVC を配線して画面を表示する（EDT 上で呼ぶ）。
+     *
+     * @param journalPath 入力の記録先（null の場合は記録しない）
+     * @param onOpened 画面が初めて表示されたときの処理（null 可）
+     */
+    static CalculatorFrame createAndShow(java.nio.file.Path journalPath, Runnable onOpened) {
+        // ------------------------
+        // 状態・計算ロジック
+        // ------------------------
+        CalculatorModel model = new CalculatorModel();
+        if (journalPath != null) {
+            openJournal(journalPath, model);
+        }
+
+        // ------------------------
+        //画面表示
+        // ------------------------
+        CalculatorFrame frame = new CalculatorFrame();
+        // 確定した計算の記録（復元時の再生分は記録しない）
+        CalculationTape tape = new CalculationTape();
+        model.setTape(tape);
+        frame.attachTape(tape);
+
+        // ------------------------
+        // 入力制御
+        // ------------------------
+        // 計算は Model 専用のワーカースレッドで行い、表示は最新のもののみ EDT で反映する
+        CalculatorController controller =new CalculatorController(model, new CoalescingView(frame), newWorker());
+        // View と Controller を関連付ける
+        frame.bindController(controller);
+        // 復元した状態を表示
+        if (journalPath != null) {
+            frame.setDisplay(model.getDisplayText());
+        }
+        if (onOpened != null) {
+            frame.whenOpened(onOpened);
+        }
+        // 画面表示
+        frame.show();
+        return frame;
+    }
+
+    //Operator・FormatterUtil などの初期化と、計算処理の初回実行を別スレッドで行う
+    static Thread warmUp() {
+        Thread thread = new Thread(() -> {
+            KeystrokeReplayer.replay(new CalculatorModel(), "12.5+3×4÷7-1=");
+            Operator.fromDisplay("+");
+        }, "calculator-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    //Model を操作する 1 スレッドの Executor
+    private static java.util.concurrent.ExecutorService newWorker() {
+        return java.util.concurrent.Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "calculator-worker");
+            thread.setDaemon(true);
+            return thread;
         });
     }
+
+    //入力の記録を開始し、終了時に記録をディスクへ反映する
+    private static void openJournal(java.nio.file.Path directory, CalculatorModel model) {
+        try {
+            KeystrokeJournal journal = KeystrokeJournal.open(directory, model);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.flush();
+                } catch (java.io.IOException e) {
+                    ErrorHandler.handle(e);
+                }
+            }));
+        } catch (java.io.IOException e) {
+            // 記録できない場合も電卓としては起動する
+            ErrorHandler.handle(e);
+        }
+    }
 }
 
 
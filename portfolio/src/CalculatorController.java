@@ -7,56 +7,117 @@
  *
  * 計算ロジックや入力状態の管理は行わず、
  * Model の状態変化に応じて表示更新を View に指示する。
+ *
+ * 【ワーカースレッドでの処理】
+ * Executor を指定した場合、Model の操作と表示文字列の生成はその Executor 上で行い、
+ * 呼び出し元（EDT）では待たない。
+ * - 入力はすべてキー文字として 1 つの待ち行列に積み、入力順に処理する
+ * - ワーカーは待ち行列に溜まった入力をまとめて取り出して適用し、
+ *   表示文字列の生成は溜まった入力をすべて適用した後に 1 回だけ行う
+ *   （貼り付けやキーリピートで大量の入力があっても表示更新は 1 回にまとまる）
+ * - C が押された場合、それより前に受け付けて未処理の入力は破棄する
+ *   （C はすべての状態を初期化するため、破棄しても結果は変わらない）
+ * - Executor は 1 スレッドのもの（Model 専用）を指定する
  */
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class CalculatorController {
 
     private final CalculatorModel model;
-    private final CalculatorFrame view;
+    private final CalculatorView view;
+    private final Executor worker;//Model を操作するスレッド（null の場合は呼び出し元で処理）
+    private final AtomicLong generation = new AtomicLong();//C のたびに進める
+    private final StringBuilder pendingKeys = new StringBuilder();//未処理の入力（pendingKeys を保持して読み書きする）
+    private boolean drainScheduled;//待ち行列の処理を依頼済みか（pendingKeys を保持して読み書きする）
+
+    public CalculatorController(CalculatorModel model, CalculatorView view) {
+        this(model, view, null);
+    }
 
-    public CalculatorController(CalculatorModel model, CalculatorFrame view) {
+    /**
+     * @param worker Model の操作を行う 1 スレッドの Executor（null の場合は呼び出し元のスレッドで処理）
+     */
+    public CalculatorController(CalculatorModel model, CalculatorView view, Executor worker) {
         this.model = model;
         this.view = view;
+        this.worker = worker;
     }
     // ------------------------
-    // 数字入力:数字ボタンが押されたときに呼ばれる
-    // ------------------------
-    public void onDigit(char digit) {
-        model.appendDigit(digit);//数字入力の処理を Model に委譲
-        updateView();
-    }
-    // ------------------------
-    // 小数点:ボタン押下時
+    // C :C ボタン押下時
     // ------------------------
-    public void onDot() {
-        model.appendDot();
+    public void onClear() {
+        if (worker != null) {
+            //未処理の入力を破棄してから C を積む
+            synchronized (pendingKeys) {
+                generation.incrementAndGet();
+                pendingKeys.setLength(0);
+            }
+            enqueue("C");
+            return;
+        }
+        model.clearAll();
         updateView();
     }
     // ------------------------
-    // 演算子:+ - × ÷ ボタン押下時
+    // キー列 :ボタン・キーボード入力・貼り付け時（InputDispatcher のキー文字、未対応の文字は無視）
     // ------------------------
-    public void onOperator(String operatorSymbol) {
-        Operator operator = Operator.fromDisplay(operatorSymbol);
-        //未対応の演算子が来た場合は何もしない
-        if (operator == null) {
+    public void onKeys(CharSequence keys) {
+        if (worker != null) {
+            enqueue(keys);
             return;
         }
-        model.inputOperator(operator);
+        applyKeys(keys, generation.get());
         updateView();
     }
     // ------------------------
-    // = := ボタン押下時
+    // 待ち行列 :ワーカースレッドで Model を操作する
     // ------------------------
-    public void onEquals() {
-        model.equalsOp();
-        updateView();
+    private void enqueue(CharSequence keys) {
+        boolean schedule;
+        synchronized (pendingKeys) {
+            pendingKeys.append(keys);
+            schedule = !drainScheduled;
+            drainScheduled = true;
+        }
+        if (schedule) {
+            worker.execute(this::drain);
+        }
     }
-    // ------------------------
-    // C :C ボタン押下時
-    // ------------------------
-    public void onClear() {
-        model.clearAll();
+
+    //溜まった入力をまとめて適用し、最後に 1 回だけ表示を更新する
+    private void drain() {
+        while (true) {
+            String keys;
+            long current;
+            synchronized (pendingKeys) {
+                if (pendingKeys.length() == 0) {
+                    drainScheduled = false;
+                    break;
+                }
+                keys = pendingKeys.toString();
+                pendingKeys.setLength(0);
+                current = generation.get();
+            }
+            applyKeys(keys, current);
+        }
         updateView();
     }
+
+    //キー列を Model に適用する（途中で C が押された場合は残りを破棄する）
+    private void applyKeys(CharSequence keys, long current) {
+        for (int i = 0; i < keys.length(); i++) {
+            if (generation.get() != current) {
+                return;
+            }
+            try {
+                InputDispatcher.dispatch(model, keys.charAt(i));
+            } catch (RuntimeException e) {
+                // そのキー入力のみを破棄して続行する
+                ErrorHandler.handle(e);
+            }
+        }
+    }
     // ------------------------
     // View更新 :入力のたびに呼ばれる共通処理
     // ------------------------
@@ -64,4 +125,3 @@ public class CalculatorController {
         view.setDisplay(model.getDisplayText());
     }
 }
-
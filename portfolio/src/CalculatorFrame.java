@@ -13,7 +13,10 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 
-public class CalculatorFrame {
+public class CalculatorFrame implements CalculatorView {
+    // フォントは全ボタンで共有する（ボタンごとに生成しない）
+    private static final Font DISPLAY_FONT = new Font("Arial", Font.PLAIN, 24);
+    private static final Font BUTTON_FONT = new Font("Arial", Font.PLAIN, 18);
     private JFrame frame;
     private JLabel displayLabel;
     private JPanel keypadPanel;
@@ -27,30 +30,123 @@ public class CalculatorFrame {
         frame.setLayout(new BorderLayout());
         // 表示ラベル
         displayLabel = new JLabel("0", SwingConstants.RIGHT);
-        displayLabel.setFont(new Font("Arial", Font.PLAIN, 24));
+        displayLabel.setFont(DISPLAY_FONT);
         displayLabel.setBorder(
             BorderFactory.createEmptyBorder(10, 10, 10, 10)
         );
         frame.add(displayLabel, BorderLayout.NORTH);
         // ボタンパネル
-        keypadPanel = new JPanel(new GridLayout(5, 4, 5, 5));
+        keypadPanel = new JPanel(new GridLayout(6, 4, 5, 5));
         String[] buttonLabels = {
+            "√", "xʸ", "%", "1/x",
             "7", "8", "9", "÷",
             "4", "5", "6", "×",
             "1", "2", "3", "-",
             "0", ".", "=", "+",
             "C"
         };
-        // 各ボタンにリスナー登録
+        /*
+         * 各ボタンの入力は構築時にキー文字へ対応付け（アクションコマンドに設定）、
+         * 押下時はキー入力と同じ経路で Controller へ渡す。
+         * リスナーは全ボタンで共有する（ボタンごとに生成しない）
+         */
+        ActionListener clear = new ClearListener();
+        ActionListener keys = new ButtonKeyListener();
         for (String label : buttonLabels) {
             JButton button = new JButton(label);
-            button.setFont(new Font("Arial", Font.PLAIN, 18));
-            button.addActionListener(new ButtonClickListener());
+            button.setFont(BUTTON_FONT);
+            char key = InputDispatcher.keyForLabel(label);
+            button.setActionCommand(String.valueOf(key));
+            button.addActionListener(key == 'C' ? clear : keys);
             keypadPanel.add(button);
         }
         frame.add(keypadPanel, BorderLayout.CENTER);
     }
 
+    //------------------------
+    //キーボード入力・貼り付け
+    //------------------------
+    /*
+     * キー入力はウィンドウ全体で受け付け（フォーカスのあるボタンによらない）、
+     * 1 文字ごとの解析は行わずにキー文字のまま Controller へ渡す。
+     * 貼り付けはクリップボードの文字列をそのまま 1 回で渡す。
+     */
+    private void bindKeys() {
+        JRootPane root = frame.getRootPane();
+        InputMap inputMap = root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actionMap = root.getActionMap();
+        for (char key : "0123456789.+-*/×÷^%r@√=".toCharArray()) {
+            bindKey(inputMap, actionMap, KeyStroke.getKeyStroke(key), String.valueOf(key));
+        }
+        bindKey(inputMap, actionMap, KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "=");
+        // クリアは C ボタンと同じく、未処理の入力を破棄してから行う
+        inputMap.put(KeyStroke.getKeyStroke('C'), "clear");
+        inputMap.put(KeyStroke.getKeyStroke('c'), "clear");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "clear");
+        actionMap.put("clear", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent event) {
+                if (controller != null) {
+                    controller.onClear();
+                }
+            }
+        });
+
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        bindKey(inputMap, actionMap, KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut), "z");
+        bindKey(inputMap, actionMap, KeyStroke.getKeyStroke(KeyEvent.VK_Y, shortcut), "y");
+        bindKey(inputMap, actionMap, KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut | InputEvent.SHIFT_DOWN_MASK), "y");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_V, shortcut), "paste");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_INSERT, InputEvent.SHIFT_DOWN_MASK), "paste");
+        actionMap.put("paste", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent event) {
+                paste();
+            }
+        });
+    }
+
+    private void bindKey(InputMap inputMap, ActionMap actionMap, KeyStroke stroke, String keys) {
+        String name = "key:" + keys;
+        inputMap.put(stroke, name);
+        if (actionMap.get(name) == null) {
+            actionMap.put(name, new KeyAction(keys));
+        }
+    }
+
+    //クリップボードの文字列をキー列として渡す
+    private void paste() {
+        if (controller == null) {
+            return;
+        }
+        try {
+            Object data = Toolkit.getDefaultToolkit().getSystemClipboard()
+                    .getData(java.awt.datatransfer.DataFlavor.stringFlavor);
+            controller.onKeys((String) data);
+        } catch (java.awt.datatransfer.UnsupportedFlavorException | java.io.IOException | IllegalStateException e) {
+            // 文字列でない・取得できない場合は何もしない
+            ErrorHandler.handle(e);
+        }
+    }
+
+    //1 つのキーに対応する入力（キー文字列は登録時に 1 度だけ生成する）
+    private class KeyAction extends AbstractAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String keys;
+
+        KeyAction(String keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            if (controller != null) {
+                controller.onKeys(keys);
+            }
+        }
+    }
+
     //------------------------
     //Controller 接続
     //------------------------ 
@@ -60,6 +156,7 @@ public class CalculatorFrame {
     //------------------------
     //表示更新（Controller から呼ばれる）
     //------------------------
+    @Override
     public void setDisplay(String text) {
         displayLabel.setText(text);
     }
@@ -68,28 +165,62 @@ public class CalculatorFrame {
     //------------------------
     public void show() {
         frame.setVisible(true);
+        // キーボード入力の登録は初回表示に不要なため、表示後に行う
+        SwingUtilities.invokeLater(this::bindKeys);
+    }
+
+    /**
+     * 画面が初めて表示されたときに呼ばれる処理を登録する（起動時間の計測用）。
+     * show() より前に呼ぶこと。
+     */
+    void whenOpened(Runnable action) {
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent event) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 計算履歴（テープ）のパネルを画面の右側に追加する。
+     * show() より前に呼ぶこと。
+     */
+    void attachTape(CalculationTape tape) {
+        frame.add(new CalculationTapePanel(tape), BorderLayout.EAST);
+        frame.setSize(frame.getWidth() + 260, frame.getHeight());
+    }
+
+    //現在の表示文字列
+    String getDisplay() {
+        return displayLabel.getText();
+    }
+
+    //キー列を入力する（貼り付けと同じ経路）
+    void inputKeys(CharSequence keys) {
+        if (controller != null) {
+            controller.onKeys(keys);
+        }
     }
     //------------------------
-    //ボタン押下リスナー
+    //ボタン押下リスナー（全ボタン共通。アクションコマンドのキー文字を渡す）
     //------------------------
-    private class ButtonClickListener implements ActionListener {
+    private class ButtonKeyListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent event) {
-            String command = event.getActionCommand();
-            if (controller == null) {
-                return;
+            if (controller != null) {
+                controller.onKeys(event.getActionCommand());
             }
-            if (command.matches("[0-9]")) {
-                controller.onDigit(command.charAt(0));
-            } else if (command.equals(".")) {
-                controller.onDot();
-            } else if (command.equals("=")) {
-                controller.onEquals();
-            } else if (command.equals("C")) {
+        }
+    }
+    //------------------------
+    //C ボタン押下リスナー（未処理の入力を破棄してからクリアする）
+    //------------------------
+    private class ClearListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            if (controller != null) {
                 controller.onClear();
-            } else {
-                // + - × ÷
-                controller.onOperator(command);
             }
         }
     }
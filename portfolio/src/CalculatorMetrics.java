@@ -0,0 +1,264 @@
+/**
+ * 計測クラス。
+ *
+ * 本クラスは、CalculatorModel・CalculatorController・FormatterUtil の
+ * 処理回数と処理時間を集計し、スナップショットおよび JMX（MBean）として公開する。
+ *
+ * 【計測項目】
+ * - キー種別（数字・小数点・演算子・=・C）ごとの入力数
+ * - 演算子ごとの計算回数
+ * - ERROR 状態への遷移回数
+ * - applyOperator の処理時間
+ * - formatForDisplay の処理時間（通常表示と指数表記に分ける）
+ *
+ * 【設計方針】
+ * - 計測はシステムプロパティ calculator.metrics=true の場合のみ行う
+ *   （ENABLED は static final のため、無効時は JIT により呼び出し側の計測処理ごと除去される）
+ * - 件数は LongAdder で数え、複数スレッドから同時に記録しても競合しない
+ * - 処理時間は固定区間（2 のべき乗ナノ秒）のヒストグラムに記録し、記録時にメモリを確保しない
+ */
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class CalculatorMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("calculator.metrics");
+    public static final String OBJECT_NAME = "calculator:type=Metrics";
+
+    /**
+     * キー入力の種別
+     */
+    public enum KeyType {
+        DIGIT, DOT, OPERATOR, EQUALS, CLEAR, UNDO, REDO
+    }
+
+    private static final Operator[] OPERATORS = Operator.values();
+    private static final KeyType[] KEY_TYPES = KeyType.values();
+    private static final LongAdder[] KEYSTROKES = adders(KEY_TYPES.length);
+    private static final LongAdder[] OPERATIONS = adders(OPERATORS.length);
+    private static final LongAdder ERROR_TRANSITIONS = new LongAdder();
+    private static final LatencyHistogram APPLY_OPERATOR = new LatencyHistogram();
+    private static final LatencyHistogram FORMAT_PLAIN = new LatencyHistogram();
+    private static final LatencyHistogram FORMAT_EXPONENT = new LatencyHistogram();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(new MXBean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                ErrorHandler.handle(e);
+            }
+        }
+    }
+
+    // ユーティリティクラスのためインスタンス化を禁止
+    private CalculatorMetrics() {}
+
+    // ==================================================
+    // 記録（呼び出し側で ENABLED を確認してから呼ぶ）
+    // ==================================================
+    static void recordKeystroke(KeyType type) {
+        KEYSTROKES[type.ordinal()].increment();
+    }
+
+    static void recordOperation(Operator operator, long elapsedNanos) {
+        OPERATIONS[operator.ordinal()].increment();
+        APPLY_OPERATOR.record(elapsedNanos);
+    }
+
+    static void recordErrorTransition() {
+        ERROR_TRANSITIONS.increment();
+    }
+
+    static void recordFormat(long elapsedNanos, boolean exponent) {
+        (exponent ? FORMAT_EXPONENT : FORMAT_PLAIN).record(elapsedNanos);
+    }
+
+    // ==================================================
+    // 参照
+    // ==================================================
+    //現在の計測値のスナップショット
+    public static Snapshot snapshot() {
+        Map<String, Long> keystrokes = new LinkedHashMap<>();
+        for (KeyType type : KEY_TYPES) {
+            keystrokes.put(type.name(), KEYSTROKES[type.ordinal()].sum());
+        }
+        Map<String, Long> operations = new LinkedHashMap<>();
+        for (Operator operator : OPERATORS) {
+            operations.put(operator.name(), OPERATIONS[operator.ordinal()].sum());
+        }
+        return new Snapshot(keystrokes, operations, ERROR_TRANSITIONS.sum(),
+                APPLY_OPERATOR.counts(), FORMAT_PLAIN.counts(), FORMAT_EXPONENT.counts());
+    }
+
+    //すべての計測値を 0 に戻す
+    public static void reset() {
+        for (LongAdder adder : KEYSTROKES) adder.reset();
+        for (LongAdder adder : OPERATIONS) adder.reset();
+        ERROR_TRANSITIONS.reset();
+        APPLY_OPERATOR.reset();
+        FORMAT_PLAIN.reset();
+        FORMAT_EXPONENT.reset();
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // ==================================================
+    // ヒストグラム
+    // ==================================================
+    /**
+     * 処理時間のヒストグラム。
+     * 区間 i の上限は 2^(i + MIN_SHIFT) ナノ秒とし、最後の区間は上限なしとする。
+     */
+    public static final class LatencyHistogram {
+        // 最初の区間の上限 2^6 = 64ns
+        private static final int MIN_SHIFT = 6;
+        // 区間数（最後の上限付き区間の上限は 2^(MIN_SHIFT + BUCKETS - 2) ≒ 67ms）
+        public static final int BUCKETS = 22;
+
+        private final LongAdder[] buckets = adders(BUCKETS);
+
+        void record(long elapsedNanos) {
+            int index = (64 - Long.numberOfLeadingZeros(Math.max(0, elapsedNanos - 1))) - MIN_SHIFT;
+            buckets[Math.min(BUCKETS - 1, Math.max(0, index))].increment();
+        }
+
+        long[] counts() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) bucket.reset();
+        }
+
+        //各区間の上限（ナノ秒。最後の区間は Long.MAX_VALUE）
+        public static long[] upperBoundsNanos() {
+            long[] bounds = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                bounds[i] = 1L << (i + MIN_SHIFT);
+            }
+            bounds[BUCKETS - 1] = Long.MAX_VALUE;
+            return bounds;
+        }
+    }
+
+    // ==================================================
+    // スナップショット
+    // ==================================================
+    /**
+     * ある時点の計測値（不変）。
+     * 各項目は個別に集計するため、項目間で厳密に同時点の値とは限らない。
+     */
+    public static final class Snapshot {
+        private final Map<String, Long> keystrokes;
+        private final Map<String, Long> operations;
+        private final long errorTransitions;
+        private final long[] applyOperatorLatency;
+        private final long[] formatPlainLatency;
+        private final long[] formatExponentLatency;
+
+        Snapshot(Map<String, Long> keystrokes, Map<String, Long> operations, long errorTransitions,
+                 long[] applyOperatorLatency, long[] formatPlainLatency, long[] formatExponentLatency) {
+            this.keystrokes = Collections.unmodifiableMap(keystrokes);
+            this.operations = Collections.unmodifiableMap(operations);
+            this.errorTransitions = errorTransitions;
+            this.applyOperatorLatency = applyOperatorLatency;
+            this.formatPlainLatency = formatPlainLatency;
+            this.formatExponentLatency = formatExponentLatency;
+        }
+
+        public Map<String, Long> getKeystrokes() {
+            return keystrokes;
+        }
+
+        public Map<String, Long> getOperations() {
+            return operations;
+        }
+
+        public long getErrorTransitions() {
+            return errorTransitions;
+        }
+
+        public long[] getApplyOperatorLatency() {
+            return applyOperatorLatency.clone();
+        }
+
+        public long[] getFormatPlainLatency() {
+            return formatPlainLatency.clone();
+        }
+
+        public long[] getFormatExponentLatency() {
+            return formatExponentLatency.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "CalculatorMetrics[keystrokes=" + keystrokes + ", operations=" + operations
+                    + ", errorTransitions=" + errorTransitions
+                    + ", applyOperator=" + Arrays.toString(applyOperatorLatency)
+                    + ", formatPlain=" + Arrays.toString(formatPlainLatency)
+                    + ", formatExponent=" + Arrays.toString(formatExponentLatency) + "]";
+        }
+    }
+
+    // ==================================================
+    // JMX
+    // ==================================================
+    private static final class MXBean implements CalculatorMetricsMXBean {
+        @Override
+        public Map<String, Long> getKeystrokes() {
+            return snapshot().getKeystrokes();
+        }
+
+        @Override
+        public Map<String, Long> getOperations() {
+            return snapshot().getOperations();
+        }
+
+        @Override
+        public long getErrorTransitions() {
+            return ERROR_TRANSITIONS.sum();
+        }
+
+        @Override
+        public long[] getLatencyBucketUpperBoundsNanos() {
+            return LatencyHistogram.upperBoundsNanos();
+        }
+
+        @Override
+        public long[] getApplyOperatorLatency() {
+            return APPLY_OPERATOR.counts();
+        }
+
+        @Override
+        public long[] getFormatPlainLatency() {
+            return FORMAT_PLAIN.counts();
+        }
+
+        @Override
+        public long[] getFormatExponentLatency() {
+            return FORMAT_EXPONENT.counts();
+        }
+
+        @Override
+        public void reset() {
+            CalculatorMetrics.reset();
+        }
+    }
+}
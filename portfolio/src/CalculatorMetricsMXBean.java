@@ -0,0 +1,31 @@
+/**
+ * 計測値の JMX 公開用インターフェース。
+ *
+ * CalculatorMetrics が有効な場合に
+ * 「calculator:type=Metrics」の名前で MBean サーバーに登録される。
+ * 遅延のヒストグラムは各区間の件数を返し、区間の上限（ナノ秒）は
+ * getLatencyBucketUpperBoundsNanos で得る（最後の区間は上限なし）。
+ */
+import java.util.Map;
+
+public interface CalculatorMetricsMXBean {
+    //キー種別ごとの入力数
+    Map<String, Long> getKeystrokes();
+
+    //演算子ごとの計算回数
+    Map<String, Long> getOperations();
+
+    //ERROR 状態への遷移回数
+    long getErrorTransitions();
+
+    long[] getLatencyBucketUpperBoundsNanos();
+
+    long[] getApplyOperatorLatency();
+
+    long[] getFormatPlainLatency();
+
+    long[] getFormatExponentLatency();
+
+    //すべての計測値を 0 に戻す
+    void reset();
+}
@@ -6,54 +6,110 @@
  * 計算の実行タイミングは、演算子入力時および「=」入力時とする。
  * 数値入力は最大8桁までとし、桁数制限には小数点および負号は含めない。
  * また、「-」入力は負号開始としても使用可能とする。
+ *
+ * 単項演算子（√ % 1/x）は入力中の数値（なければ表示中の計算結果）に即時に適用する。
+ * 演算子の入力待ちの場合、その結果は右辺の入力値となる（例: 9+16√= → 13）。
+ * % は、直前の演算子が + - の場合は左辺値に対する割合（例: 200+10% → 200+20）とする。
+ *
+ * 入力による状態の変化は UndoHistory に記録し、undo / redo で前後の状態に移動できる。
+ * 記録は次の入力（または undo / redo）の時点で、状態が変化していた場合のみ行う。
+ * C は履歴も破棄する。
  */
 import java.math.BigDecimal;
-import java.util.EnumSet;//enum を 集合として扱うためのクラス。「この状態のときは入力OK」などの制御に使う
 
 public class CalculatorModel {
     private BigDecimal leftOperand;//左辺値（すでに確定した数値）
-    private StringBuilder currentInput = new StringBuilder();//数値を文字列として保持(現在入力中の数値)
+    // ---- 現在入力中の数値 ----
+    // 文字列は保持せず、キー入力のたびに桁数・小数点位置・符号・値を差分で更新する
+    private boolean inputStarted;//何か入力されているか（"-" のみの場合も含む）
+    private boolean inputNegative;//負号付きか
+    private boolean inputHasDot;//小数点が入力済みか
+    private int inputDigits;//数字の桁数（先頭の 0 も含む）
+    private int inputFractionDigits;//小数点以下の桁数
+    private long inputUnscaled;//符号なしの値（小数点を除いた数字列）
+    private BigDecimal computedInput;//単項演算の結果を入力値とした場合の値（数字の入力時は null）
+    private final char[] inputChars = new char[MAX_DIGITS + 2];//表示文字列の組み立て用（負号・小数点の分を加える）
+    // 左辺値の固定小数点表現（long に収まる場合は Operator.applyScaled で計算する）
+    private final ScaledValue leftScaled = new ScaledValue();
+    private boolean leftScaledValid;
     private Operator pendingOp;
     private InputState state = InputState.READY;//電卓の現在状態
     private static final int MAX_DIGITS = 8;
-    // 入力許可状態(ERROR 状態では入力を無視する)
-    private static final EnumSet<InputState> INPUT_ALLOWED =EnumSet.of(InputState.READY,InputState.INPUT_NUMBER,InputState.INPUT_OPERATOR);
+    // 入力イベントの記録先（未設定なら記録しない）
+    private KeystrokeJournal journal;
+    // 確定した計算の記録先（未設定なら記録しない）
+    private CalculationTape tape;
+    // 計算エラーを ErrorHandler に通知するか（一括計算では結果の ERROR のみとする）
+    private boolean errorReporting = true;
+    // 計算結果の有効桁数の方針（連続計算で仮数部が伸び続けないよう丸める）
+    private final PrecisionPolicy precision;
+    // 元に戻す・やり直し用の状態履歴
+    private final UndoHistory history = new UndoHistory(UndoHistory.DEFAULT_CAPACITY);
+
+    public CalculatorModel() {
+        this(PrecisionPolicy.defaultPolicy());
+    }
+
+    public CalculatorModel(PrecisionPolicy precision) {
+        if (precision == null) {
+            throw new IllegalArgumentException("precision must not be null");
+        }
+        this.precision = precision;
+        history.reset(snapshot());
+    }
     // ==================================================
     // 数字入力
     // ==================================================
     //数字ボタンが押されたときに呼ばれる
     public void appendDigit(char digit) {
-        if (state == InputState.ERROR) return;
-        if (!INPUT_ALLOWED.contains(state)) return;
-        if (countDigits() >= MAX_DIGITS) return;
+        if (journal != null) journal.appendDigit(digit);
+        if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordKeystroke(CalculatorMetrics.KeyType.DIGIT);
+        recordHistory();
+        if (!InputKind.DIGIT.accepts(state)) return;//ERROR 状態では無視
+        if (digit < '0' || digit > '9') return;
+        if (computedInput != null) clearInput();//計算結果の入力値は新しい数値で置き換える
+        if (inputDigits >= MAX_DIGITS) return;
         // 先頭 0 の抑制(01,02等表記にならない)
-        if (currentInput.length() == 1 && currentInput.charAt(0) == '0') {
-            currentInput.setLength(0);
+        if (!inputNegative && !inputHasDot && inputDigits == 1 && inputUnscaled == 0) {
+            inputDigits = 0;
         }
-        currentInput.append(digit);//入力された数字を末尾に追加
+        //入力された数字を末尾に追加
+        inputUnscaled = inputUnscaled * 10 + (digit - '0');
+        inputDigits++;
+        if (inputHasDot) inputFractionDigits++;
+        inputStarted = true;
         state = InputState.INPUT_NUMBER;//「数値入力中」の状態に変更
     }
     // ==================================================
     // 小数点入力
     // ==================================================
     public void appendDot() {
-        if (state == InputState.ERROR) return;
-        if (!INPUT_ALLOWED.contains(state)) return;//入力不可状態なら無視
-        if (currentInput.toString().contains(".")) return;//すでに . があれば2つ目は禁止
-        if (countDigits() >= MAX_DIGITS) return;
-        if (currentInput.length() == 0) {
+        if (journal != null) journal.appendDot();
+        if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordKeystroke(CalculatorMetrics.KeyType.DOT);
+        recordHistory();
+        if (!InputKind.DOT.accepts(state)) return;//入力不可状態なら無視
+        if (computedInput != null) clearInput();//計算結果の入力値は破棄（数値未入力の扱い）
+        if (inputHasDot) return;//すでに . があれば2つ目は禁止
+        if (inputDigits >= MAX_DIGITS) return;
+        if (!inputStarted) {
             // 数値未入力時の "." は無効（仕様）
             return;
         }
-        currentInput.append(".");
+        inputHasDot = true;
         state = InputState.INPUT_NUMBER;//数値入力中に変更
     }
     // ==================================================
     // 演算子入力
     // ==================================================
     public void inputOperator(Operator operator) {
-        if (state == InputState.ERROR) return;//エラー中は無視
-        if (!INPUT_ALLOWED.contains(state)) return;//入力不可なら無視
+        if (journal != null) journal.appendOperator(operator);
+        if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordKeystroke(CalculatorMetrics.KeyType.OPERATOR);
+        recordHistory();
+        if (!InputKind.OPERATOR.accepts(state)) return;//エラー中は無視
+        if (operator.isUnary()) {
+            applyUnary(operator);
+            return;
+        }
         /*
          * 【負号開始】
          * 下記3つの条件時は- を負号として扱う
@@ -62,8 +118,10 @@ public class CalculatorModel {
          * ・READY または 演算子入力直後
          *  数値入力扱いにして終了
          */
-        if (operator == Operator.SUB&& currentInput.length() == 0&& (state == InputState.READY || state == InputState.INPUT_OPERATOR)){
-            currentInput.append("-");//- を数値の先頭として追加
+        if (operator == Operator.SUB&& !inputStarted&& (state == InputState.READY || state == InputState.INPUT_OPERATOR)){
+            //- を数値の先頭として追加
+            inputStarted = true;
+            inputNegative = true;
             state = InputState.INPUT_NUMBER;
             return;
         }
@@ -71,7 +129,7 @@ public class CalculatorModel {
          * 【演算子上書き】
          * 数値未入力状態での演算子入力は pendingOp を上書き
          */
-        if (currentInput.length() == 0) {
+        if (!inputStarted) {
             pendingOp = operator;//直前の演算子を上書き
             state = InputState.INPUT_OPERATOR;//演算子入力扱いにして終了
             return;
@@ -84,11 +142,17 @@ public class CalculatorModel {
          */
         if (leftOperand == null) {
             leftOperand = getCurrentValue();
+            if (computedInput != null) {
+                leftScaledValid = leftScaled.setFrom(leftOperand);
+            } else {
+                leftScaled.set(signedInput(), inputFractionDigits);
+                leftScaledValid = true;
+            }
         } else if (pendingOp != null) {
             applyOperator();
             if (state == InputState.ERROR) return;
         }
-        currentInput.setLength(0);//入力中の数値をクリア
+        clearInput();//入力中の数値をクリア
         pendingOp = operator;//直前の演算子を上書き
         state = InputState.INPUT_OPERATOR;//新しい演算子を保持
     }
@@ -101,23 +165,86 @@ public class CalculatorModel {
          * すでに左辺と演算子がある場合計算を実行
          * 計算中にエラーが出たら中断
          */
-        System.out.println(leftOperand.toPlainString());
-        if (state == InputState.ERROR) return;
-        if (pendingOp == null || currentInput.length() == 0) return;
+        if (journal != null) journal.appendEquals();
+        if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordKeystroke(CalculatorMetrics.KeyType.EQUALS);
+        recordHistory();
+        if (!InputKind.EQUALS.accepts(state)) return;
+        if (pendingOp == null || !inputStarted) return;
         applyOperator();
         if (state == InputState.ERROR) return;
         pendingOp = null;
-        currentInput.setLength(0);//入力中の数値をクリア
+        clearInput();//入力中の数値をクリア
         state = InputState.READY;//READY状態にして終了
     }
     // ==================================================
     // C（クリア）
     // ==================================================
     public void clearAll() {
+        if (journal != null) journal.appendClear();
+        if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordKeystroke(CalculatorMetrics.KeyType.CLEAR);
         leftOperand = null;
-        currentInput.setLength(0);
+        leftScaledValid = false;
+        clearInput();
         pendingOp = null;
         state = InputState.READY;
+        history.reset(snapshot());
+    }
+    // ==================================================
+    // 元に戻す・やり直し
+    // ==================================================
+    /**
+     * 直前の入力の前の状態に戻す（ERROR 状態からも戻せる）。
+     *
+     * @return 戻した場合 true（履歴がない場合は false）
+     */
+    public boolean undo() {
+        if (journal != null) journal.appendUndo();
+        if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordKeystroke(CalculatorMetrics.KeyType.UNDO);
+        recordHistory();
+        Snapshot previous = history.undo();
+        if (previous == null) return false;
+        restoreState(previous);
+        return true;
+    }
+
+    /**
+     * undo で戻した入力をやり直す。undo の後に入力した場合はやり直せない。
+     *
+     * @return やり直した場合 true
+     */
+    public boolean redo() {
+        if (journal != null) journal.appendRedo();
+        if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordKeystroke(CalculatorMetrics.KeyType.REDO);
+        recordHistory();
+        Snapshot next = history.redo();
+        if (next == null) return false;
+        restoreState(next);
+        return true;
+    }
+
+    //前回の記録から状態が変化していれば、現在の状態を記録する
+    private void recordHistory() {
+        if (!isAt(history.current())) {
+            history.record(snapshot());
+        }
+    }
+
+    //現在の状態がスナップショットと同じか
+    private boolean isAt(Snapshot snapshot) {
+        return state == snapshot.state
+                && pendingOp == snapshot.pendingOp
+                && inputStarted == snapshot.inputStarted
+                && inputNegative == snapshot.inputNegative
+                && inputHasDot == snapshot.inputHasDot
+                && inputDigits == snapshot.inputDigits
+                && inputFractionDigits == snapshot.inputFractionDigits
+                && inputUnscaled == snapshot.inputUnscaled
+                && sameValue(computedInput, snapshot.computedInput)
+                && sameValue(leftOperand, snapshot.leftOperand);
+    }
+
+    private static boolean sameValue(BigDecimal a, BigDecimal b) {
+        return a == b || (a != null && a.equals(b));
     }
     // ==================================================
     // 内部計算処理
@@ -129,12 +256,71 @@ public class CalculatorModel {
          * 演算子ごとの計算を実行
          * 例外発生時はエラー状態へ
          */
+        long start = CalculatorMetrics.ENABLED ? System.nanoTime() : 0;
         try {
+            BigDecimal left = leftOperand;
+            // 左辺・右辺とも long に収まれば固定小数点で計算（BigDecimal の計算と同じ結果）
+            if (leftScaledValid && inputDigits > 0
+                    && pendingOp.applyScaled(leftScaled.getUnscaled(), leftScaled.getScale(),
+                                             signedInput(), inputFractionDigits, leftScaled)) {
+                BigDecimal result = leftScaled.toBigDecimal();
+                leftOperand = precision.normalize(result);
+                if (leftOperand != result) leftScaledValid = leftScaled.setFrom(leftOperand);
+                if (tape != null) tape.record(left, pendingOp, getCurrentValue(), leftOperand);
+                return;
+            }
             BigDecimal right = getCurrentValue();
-            leftOperand = pendingOp.apply(leftOperand, right);
+            leftOperand = precision.apply(pendingOp, leftOperand, right);
+            leftScaledValid = leftScaled.setFrom(leftOperand);
+            if (tape != null) tape.record(left, pendingOp, right, leftOperand);
         } catch (Exception e) {
-            ErrorHandler.handle(e);
+            if (errorReporting) ErrorHandler.handle(e);
             state = InputState.ERROR;
+            if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordErrorTransition();
+        } finally {
+            if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordOperation(pendingOp, System.nanoTime() - start);
+        }
+    }
+    //単項演算子（√ % 1/x）の即時計算
+    private void applyUnary(Operator operator) {
+        //"-" のみなど数字のない入力中は無視する
+        if (inputStarted && computedInput == null && inputDigits == 0) return;
+        long start = CalculatorMetrics.ENABLED ? System.nanoTime() : 0;
+        try {
+            /*
+             * 対象の値
+             * ・入力中の数値があればその値
+             * ・なければ左辺値（演算子の入力待ちの場合も左辺値を右辺として使う）
+             * ・いずれもなければ 0
+             */
+            boolean fromInput = inputStarted;
+            BigDecimal operand = fromInput ? getCurrentValue() : leftOperand != null ? leftOperand : BigDecimal.ZERO;
+            BigDecimal result;
+            if (operator == Operator.PERCENT && fromInput && leftOperand != null
+                    && (pendingOp == Operator.ADD || pendingOp == Operator.SUB)) {
+                result = leftOperand.multiply(operator.apply(operand));//左辺値に対する割合
+            } else {
+                result = operator.apply(operand);
+            }
+            result = precision.normalize(result);
+            if (tape != null) tape.record(operand, operator, null, result);
+            if (!fromInput && leftOperand != null && pendingOp == null) {
+                //表示中の計算結果に適用した場合は、計算結果を置き換える
+                leftOperand = result;
+                leftScaledValid = leftScaled.setFrom(result);
+                state = InputState.READY;
+            } else {
+                clearInput();
+                inputStarted = true;
+                computedInput = result;
+                state = InputState.INPUT_NUMBER;
+            }
+        } catch (ArithmeticException e) {
+            if (errorReporting) ErrorHandler.handle(e);
+            state = InputState.ERROR;
+            if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordErrorTransition();
+        } finally {
+            if (CalculatorMetrics.ENABLED) CalculatorMetrics.recordOperation(operator, System.nanoTime() - start);
         }
     }
     // ==================================================
@@ -142,19 +328,42 @@ public class CalculatorModel {
     // ==================================================
     //入力中の数値を BigDecimal に変換
     private BigDecimal getCurrentValue() {
-        if (currentInput.length() == 0) return BigDecimal.ZERO;//未入力なら 0 扱い
-        return new BigDecimal(currentInput.toString());//文字列 → 数値変換
-    }
-    //数字"のみ"の桁数を数える
-    private int countDigits() {
-        int count = 0;
-        for (int i = 0; i < currentInput.length(); i++) {
-            //- や . は数えない
-            if (Character.isDigit(currentInput.charAt(i))) {
-                count++;
-            }
+        if (!inputStarted) return BigDecimal.ZERO;//未入力なら 0 扱い
+        if (computedInput != null) return computedInput;
+        //"-" や "-." のみの入力は数値として不正（文字列から変換していた頃と同じ例外）
+        if (inputDigits == 0) throw new NumberFormatException("No digits found.");
+        return BigDecimal.valueOf(signedInput(), inputFractionDigits);
+    }
+    //符号付きの入力値（小数点を除いた数字列）
+    private long signedInput() {
+        return inputNegative ? -inputUnscaled : inputUnscaled;
+    }
+    //入力中の数値をクリア
+    private void clearInput() {
+        inputStarted = false;
+        inputNegative = false;
+        inputHasDot = false;
+        inputDigits = 0;
+        inputFractionDigits = 0;
+        inputUnscaled = 0;
+        computedInput = null;
+    }
+    //入力中の数値を表示用の文字列にする（入力した通りの表記：先頭の 0 や末尾の . も保持）
+    private String inputText() {
+        int length = 0;
+        if (inputNegative) inputChars[length++] = '-';
+        int integerDigits = inputDigits - inputFractionDigits;
+        //数字列を末尾から書き込む（先頭の 0 も桁数分埋める）
+        int digitsStart = length;
+        long rest = inputUnscaled;
+        for (int i = inputDigits - 1; i >= 0; i--) {
+            int position = digitsStart + i + (inputHasDot && i >= integerDigits ? 1 : 0);
+            inputChars[position] = (char) ('0' + rest % 10);
+            rest /= 10;
         }
-        return count;
+        if (inputHasDot) inputChars[digitsStart + integerDigits] = '.';
+        length += inputDigits + (inputHasDot ? 1 : 0);
+        return new String(inputChars, 0, length);
     }
     // ==================================================
     // 表示用
@@ -167,8 +376,104 @@ public class CalculatorModel {
          * 計算結果を整形して表示
          */
         if (state == InputState.ERROR) return "ERROR";
-        if (currentInput.length() > 0) return currentInput.toString();
+        if (computedInput != null) return FormatterUtil.formatForDisplay(computedInput, MAX_DIGITS);
+        if (inputStarted) return inputText();
         if (leftOperand == null) return "0";
         return FormatterUtil.formatForDisplay(leftOperand, MAX_DIGITS);
     }
-}
+    // ==================================================
+    // スナップショット・記録
+    // ==================================================
+    //入力イベントの記録先を設定する（null で記録しない）
+    void setJournal(KeystrokeJournal journal) {
+        this.journal = journal;
+    }
+
+    //確定した計算の記録先を設定する（null で記録しない）
+    void setTape(CalculationTape tape) {
+        this.tape = tape;
+    }
+
+    //計算エラーを ErrorHandler に通知するかを設定する
+    void setErrorReporting(boolean errorReporting) {
+        this.errorReporting = errorReporting;
+    }
+
+    //入力中の数値が桁数の上限に達しているか（以降の数字は無視される）
+    boolean isInputFull() {
+        return state == InputState.INPUT_NUMBER && computedInput == null && inputDigits >= MAX_DIGITS;
+    }
+
+    //現在の状態のスナップショットを返す
+    public Snapshot snapshot() {
+        return new Snapshot(leftOperand, inputStarted, inputNegative, inputHasDot,
+                inputDigits, inputFractionDigits, inputUnscaled, computedInput, pendingOp, state);
+    }
+
+    //スナップショットの状態に戻す（記録は行わない。元に戻す履歴は破棄する）
+    public void restore(Snapshot snapshot) {
+        restoreState(snapshot);
+        history.reset(snapshot);
+    }
+
+    //現在の状態と元に戻す履歴を返す（history[position] が最後に記録した状態）
+    Snapshot[] historySnapshot() {
+        return history.toArray();
+    }
+
+    int historyPosition() {
+        return history.position();
+    }
+
+    //スナップショットの状態と元に戻す履歴に戻す（記録は行わない）
+    void restore(Snapshot snapshot, Snapshot[] savedHistory, int position) {
+        restoreState(snapshot);
+        history.load(savedHistory, position);
+    }
+
+    private void restoreState(Snapshot snapshot) {
+        leftOperand = snapshot.leftOperand;
+        leftScaledValid = leftOperand != null && leftScaled.setFrom(leftOperand);
+        inputStarted = snapshot.inputStarted;
+        inputNegative = snapshot.inputNegative;
+        inputHasDot = snapshot.inputHasDot;
+        inputDigits = snapshot.inputDigits;
+        inputFractionDigits = snapshot.inputFractionDigits;
+        inputUnscaled = snapshot.inputUnscaled;
+        computedInput = snapshot.computedInput;
+        pendingOp = snapshot.pendingOp;
+        state = snapshot.state;
+    }
+
+    /**
+     * Model の状態（左辺値・入力中の数値・演算子・状態）のスナップショット。
+     * 不変のため、複数のスレッドから共有できる。
+     */
+    public static final class Snapshot {
+        final BigDecimal leftOperand;
+        final boolean inputStarted;
+        final boolean inputNegative;
+        final boolean inputHasDot;
+        final int inputDigits;
+        final int inputFractionDigits;
+        final long inputUnscaled;
+        final BigDecimal computedInput;
+        final Operator pendingOp;
+        final InputState state;
+
+        Snapshot(BigDecimal leftOperand, boolean inputStarted, boolean inputNegative, boolean inputHasDot,
+                 int inputDigits, int inputFractionDigits, long inputUnscaled, BigDecimal computedInput,
+                 Operator pendingOp, InputState state) {
+            this.leftOperand = leftOperand;
+            this.inputStarted = inputStarted;
+            this.inputNegative = inputNegative;
+            this.inputHasDot = inputHasDot;
+            this.inputDigits = inputDigits;
+            this.inputFractionDigits = inputFractionDigits;
+            this.inputUnscaled = inputUnscaled;
+            this.computedInput = computedInput;
+            this.pendingOp = pendingOp;
+            this.state = state;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,279 @@
+/**
+ * 計算サービスクラス。
+ *
+ * 本クラスは、1 つの JVM 上で多数の電卓セッションを同時に扱う
+ * ローカル（ループバック）専用の HTTP エンドポイントを提供する。
+ * JDK 標準の HTTP サーバー（com.sun.net.httpserver）を使用する。
+ *
+ * 【API】
+ * - POST   /session/{id}  本文のキー列（例: "12+3×4="）を適用し、表示文字列を返す
+ * - GET    /session/{id}  現在の表示文字列を返す
+ * - DELETE /session/{id}  セッションを破棄する
+ * - GET    /stats         セッション数などを返す
+ * キー列は InputDispatcher のキー文字（0-9 . + - × * ÷ / ^ √ % r = C z y）を使う。
+ * セッションは初回アクセス時に作成する。
+ *
+ * 【設計方針】
+ * - セッションごとに CalculatorModel と CalculatorController を持ち、
+ *   画面操作と同じ CalculatorController.onKeys（InputDispatcher）で入力する
+ * - CalculatorModel はスレッドセーフではないため、セッションごとのロックで
+ *   同時に 1 スレッドだけが操作するようにする（全体を 1 つのロックで守ることはしない）
+ * - セッションの登録簿は ConcurrentHashMap とし、参照はロックなしで行う
+ * - 一定時間アクセスのないセッションは定期的に破棄し、メモリを解放する
+ * - リクエストは 1 件ごとに仮想スレッドで処理する
+ *   （仮想スレッドのない JDK ではキャッシュ型のスレッドプールで代替する）
+ */
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class CalculatorService {
+    // リクエスト本文（キー列）の最大長
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    // セッション ID の最大長
+    private static final int MAX_SESSION_ID_LENGTH = 64;
+    private static final String SESSION_PATH = "/session/";
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ScheduledExecutorService evictor;
+    private final long idleTimeoutNanos;
+    private final LongAdder evictedSessions = new LongAdder();
+
+    /**
+     * @param port 待ち受けポート（0 の場合は空いているポート）
+     * @param idleTimeoutSeconds この秒数アクセスのないセッションを破棄する
+     */
+    public CalculatorService(int port, long idleTimeoutSeconds) throws IOException {
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.requestExecutor = newRequestExecutor();
+        this.server.setExecutor(requestExecutor);
+        this.server.createContext(SESSION_PATH, this::handleSession);
+        this.server.createContext("/stats", this::handleStats);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "calculator-session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // タイムアウトの 1/4 ごと（最短 1 秒）に走査する
+        long sweepMillis = Math.max(1000, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdleSessions, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        evictor.shutdownNow();
+        requestExecutor.shutdown();
+    }
+
+    //実際に待ち受けているポート
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    // ==================================================
+    // セッション操作
+    // ==================================================
+    /**
+     * セッションにキー列を適用し、適用後の表示文字列を返す。
+     * 同じセッションへの操作は順に 1 つずつ実行される。
+     */
+    public String apply(String sessionId, CharSequence keys) {
+        while (true) {
+            Session session = sessions.computeIfAbsent(sessionId, id -> new Session());
+            session.lock.lock();
+            try {
+                // 破棄と競合した場合は新しいセッションで処理し直す
+                if (session.closed) continue;
+                // 例外はキー入力ごとに Controller で処理する（そのキー入力のみを破棄して続行する）
+                session.controller.onKeys(keys);
+                session.lastAccess = System.nanoTime();
+                return session.display;
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    //現在の表示文字列（セッションがなければ null）
+    public String display(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) return null;
+        session.lastAccess = System.nanoTime();
+        return session.display;
+    }
+
+    //セッションを破棄する
+    public boolean remove(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) return false;
+        session.lock.lock();
+        try {
+            session.closed = true;
+        } finally {
+            session.lock.unlock();
+        }
+        return true;
+    }
+
+    //一定時間アクセスのないセッションを破棄する（操作中のセッションは対象外）
+    private void evictIdleSessions() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Session>> iterator = sessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Session> entry = iterator.next();
+            Session session = entry.getValue();
+            if (now - session.lastAccess < idleTimeoutNanos) continue;
+            if (!session.lock.tryLock()) continue;
+            try {
+                if (now - session.lastAccess < idleTimeoutNanos) continue;
+                session.closed = true;
+                sessions.remove(entry.getKey(), session);
+                evictedSessions.increment();
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    // ==================================================
+    // HTTP ハンドラ
+    // ==================================================
+    private void handleSession(HttpExchange exchange) throws IOException {
+        try {
+            String sessionId = exchange.getRequestURI().getPath().substring(SESSION_PATH.length());
+            if (sessionId.isEmpty() || sessionId.length() > MAX_SESSION_ID_LENGTH || sessionId.indexOf('/') >= 0) {
+                respond(exchange, 404, "Unknown session path");
+                return;
+            }
+            switch (exchange.getRequestMethod()) {
+                case "POST": {
+                    String keys = readBody(exchange);
+                    if (keys == null) {
+                        respond(exchange, 413, "Too many keys");
+                        return;
+                    }
+                    respond(exchange, 200, apply(sessionId, keys));
+                    return;
+                }
+                case "GET": {
+                    String display = display(sessionId);
+                    respond(exchange, display == null ? 404 : 200, display == null ? "No such session" : display);
+                    return;
+                }
+                case "DELETE":
+                    respond(exchange, remove(sessionId) ? 200 : 404, "");
+                    return;
+                default:
+                    respond(exchange, 405, "Method not allowed");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            respond(exchange, 200, "sessions=" + sessions.size() + " evicted=" + evictedSessions.sum());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    //本文を読み込む（上限を超えた場合は null）
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) return null;
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /*
+     * リクエスト処理用の Executor。
+     * 仮想スレッドが使える JDK（21 以降）では 1 リクエスト 1 仮想スレッドとし、
+     * それ以外ではキャッシュ型のスレッドプールを使う。
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "calculator-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // ==================================================
+    // セッション
+    // ==================================================
+    //1 セッション分の状態（lock を保持したスレッドだけが操作する）
+    private static final class Session implements CalculatorView {
+        final ReentrantLock lock = new ReentrantLock();
+        final CalculatorController controller;
+        volatile String display = "0";//最新の表示文字列
+        volatile long lastAccess = System.nanoTime();
+        boolean closed;//破棄済み（lock を保持して読み書きする）
+
+        Session() {
+            this.controller = new CalculatorController(new CalculatorModel(), this);
+        }
+
+        @Override
+        public void setDisplay(String text) {
+            display = text;
+        }
+    }
+
+    // ==================================================
+    // 起動
+    // ==================================================
+    /**
+     * 使い方: CalculatorService [port] [idleTimeoutSeconds]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        long idleTimeoutSeconds = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        CalculatorService service = new CalculatorService(port, idleTimeoutSeconds);
+        service.start();
+        System.err.println("Calculator service listening on http://127.0.0.1:" + service.getPort() + SESSION_PATH);
+    }
+}
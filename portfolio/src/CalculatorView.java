@@ -0,0 +1,15 @@
+/**
+ * 表示先（View）を表すインタフェース。
+ *
+ * CalculatorController が表示更新を指示する相手を抽象化する。
+ * Swing 画面（CalculatorFrame）のほか、画面を持たない
+ * セッション（CalculatorService など）からも同じ Controller を使えるようにする。
+ */
+public interface CalculatorView {
+    /**
+     * 表示文字列を更新する。
+     *
+     * @param text 表示する文字列
+     */
+    void setDisplay(String text);
+}
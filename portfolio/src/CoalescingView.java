@@ -0,0 +1,38 @@
+/**
+ * 表示更新の間引きクラス。
+ *
+ * 本クラスは、任意のスレッドから通知される表示文字列を
+ * イベントディスパッチスレッド（EDT）上で View に反映する。
+ * 反映前に次の表示文字列が届いた場合は古いものを捨て、最新の表示のみを描画する。
+ *
+ * 【設計方針】
+ * - 最新の表示文字列は AtomicReference に 1 つだけ保持する
+ * - EDT への反映依頼（invokeLater）は、未反映の表示がない状態からの通知時のみ行う
+ *   （連続して通知されても依頼は 1 回にまとまる）
+ */
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
+public class CoalescingView implements CalculatorView {
+    private final CalculatorView target;//EDT 上で更新する View
+    private final AtomicReference<String> pending = new AtomicReference<>();//未反映の最新の表示
+
+    public CoalescingView(CalculatorView target) {
+        this.target = target;
+    }
+
+    @Override
+    public void setDisplay(String text) {
+        if (pending.getAndSet(text) == null) {
+            SwingUtilities.invokeLater(this::paint);
+        }
+    }
+
+    //EDT 上で最新の表示を反映する
+    private void paint() {
+        String text = pending.getAndSet(null);
+        if (text != null) {
+            target.setDisplay(text);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * 列単位の一括演算（カーネル）ユーティリティクラス。
+ *
+ * 本クラスは、Operator の二項演算を列（ScaledColumn または double 配列）の
+ * 要素ごとにまとめて適用する処理を提供する。
+ * 四則演算以外（べき乗）は要素ごとに Operator.apply で計算する。
+ * 1 行ずつ BigDecimal を生成して Operator.apply を呼ぶ代わりに、
+ * long / double の配列を単純なループで処理する。
+ *
+ * 【高速化】
+ * - 加算・減算・double の演算は、分岐を持たない単純なループとし、
+ *   JIT（C2）の自動ベクトル化（SIMD 命令化）が効く形で記述する
+ * - オーバーフローはブロック（BLOCK_SIZE 要素）ごとに判定フラグの論理和で検出し、
+ *   フラグが立ったブロックだけを走査して該当要素を BigDecimal で計算し直す
+ * - 大きな列は ForkJoinPool で分割し、複数コアで並列に処理する
+ *
+ * 【結果】
+ * - 固定小数点の結果は Operator.apply と同じ値・scale となる
+ *   （加算・減算は大きい方の scale、乗算は scale の和、除算は scale 10）
+ * - long に収まらない要素は BigDecimal として保持する（ScaledColumn の spill）
+ * - 0 除算の要素はエラーとして記録する（double の場合は NaN）
+ * - 単項演算子（√ % 1/x）は対象外とする
+ */
+import java.math.BigDecimal;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class ColumnKernels {
+    // オーバーフロー判定をまとめて行う単位
+    private static final int BLOCK_SIZE = 1024;
+    // これ以下の要素数はタスク分割せずに 1 スレッドで処理する
+    private static final int SPLIT_THRESHOLD = 1 << 16;
+    // 10 の累乗表（10^0 ～ 10^18）
+    private static final long[] POWERS_OF_TEN = new long[ScaledArithmetic.MAX_LONG_DIGITS + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    // ユーティリティクラスのためインスタンス化を禁止
+    private ColumnKernels() {}
+
+    // ==================================================
+    // 固定小数点の列
+    // ==================================================
+    /**
+     * 2 つの列の要素ごとに演算を適用する。
+     *
+     * @return 演算結果の列
+     * @throws IllegalArgumentException 列の長さが異なる場合
+     */
+    public static ScaledColumn apply(Operator operator, ScaledColumn left, ScaledColumn right) {
+        if (left.size() != right.size()) {
+            throw new IllegalArgumentException("Column sizes differ: " + left.size() + " / " + right.size());
+        }
+        ScaledColumn result = new ScaledColumn(left.size(), resultScale(operator, left.getScale(), right.getScale()));
+        run(new ScaledTask(operator, left, right, result, 0, left.size()));
+        return result;
+    }
+
+    //演算結果の列の scale（Operator.apply の結果の scale と同じ）
+    private static int resultScale(Operator operator, int leftScale, int rightScale) {
+        switch (operator) {
+            case ADD:
+            case SUB:
+                return Math.max(leftScale, rightScale);
+            case MUL:
+                return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, (long) leftScale + rightScale));
+            case DIV:
+                return Operator.DIV_SCALE;
+            case POW:
+                return 0;//要素ごとに計算し、整数でない結果は spill として保持する
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+    }
+
+    //範囲 [from, to) を処理する
+    private static void compute(Operator operator, ScaledColumn left, ScaledColumn right,
+                                ScaledColumn result, int from, int to) {
+        long[] a = left.values();
+        long[] b = right.values();
+        long[] out = result.values();
+        int scale = result.getScale();
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(start + BLOCK_SIZE, to);
+            boolean overflow;
+            switch (operator) {
+                case ADD:
+                    overflow = addBlock(a, left.getScale(), b, right.getScale(), out, scale, start, end, false);
+                    break;
+                case SUB:
+                    overflow = addBlock(a, left.getScale(), b, right.getScale(), out, scale, start, end, true);
+                    break;
+                case MUL:
+                    overflow = multiplyBlock(a, b, out, start, end);
+                    break;
+                case DIV:
+                    divideBlock(operator, left, right, result, start, end);
+                    overflow = false;
+                    break;
+                default:
+                    for (int i = start; i < end; i++) {
+                        redo(operator, left, right, result, i);
+                    }
+                    overflow = false;
+                    break;
+            }
+            if (overflow) {
+                redoOverflowed(operator, left, right, result, start, end);
+            }
+        }
+        // spill・エラー要素を含む入力は、該当要素を BigDecimal で計算し直す（要素ごとに計算済みの演算は除く）
+        if (operator != Operator.POW && (left.hasExceptions() || right.hasExceptions())) {
+            for (int i = from; i < to; i++) {
+                if (left.isSpilled(i) || left.isError(i) || right.isSpilled(i) || right.isError(i)) {
+                    redo(operator, left, right, result, i);
+                }
+            }
+        }
+    }
+
+    /*
+     * 加算・減算のブロック処理。
+     * scale が等しい場合は分岐のない加算ループ（自動ベクトル化の対象）とし、
+     * 符号の変化からオーバーフローを検出して判定フラグに論理和で集約する。
+     */
+    private static boolean addBlock(long[] a, int leftScale, long[] b, int rightScale, long[] out,
+                                    int scale, int from, int to, boolean subtract) {
+        if (leftScale == rightScale) {
+            long flags = 0;
+            if (subtract) {
+                for (int i = from; i < to; i++) {
+                    long x = a[i];
+                    long y = b[i];
+                    long r = x - y;
+                    out[i] = r;
+                    flags |= (x ^ y) & (x ^ r);
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    long x = a[i];
+                    long y = b[i];
+                    long r = x + y;
+                    out[i] = r;
+                    flags |= (x ^ r) & (y ^ r);
+                }
+            }
+            return flags < 0;
+        }
+        // scale が異なる場合は小さい方を 10^n 倍して揃える
+        int diff = scale - Math.min(leftScale, rightScale);
+        if (diff > ScaledArithmetic.MAX_LONG_DIGITS) {
+            return true;//全要素を BigDecimal で計算し直す
+        }
+        long factor = POWERS_OF_TEN[diff];
+        boolean scaleLeft = leftScale < rightScale;
+        long flags = 0;
+        for (int i = from; i < to; i++) {
+            long x = a[i];
+            long y = b[i];
+            long scaled = scaleLeft ? x * factor : y * factor;
+            long high = Math.multiplyHigh(scaleLeft ? x : y, factor);
+            flags |= high ^ (scaled >> 63);
+            if (scaleLeft) x = scaled; else y = scaled;
+            long r = subtract ? x - y : x + y;
+            out[i] = r;
+            flags |= subtract ? ((x ^ y) & (x ^ r)) >>> 63 : ((x ^ r) & (y ^ r)) >>> 63;
+        }
+        return flags != 0;
+    }
+
+    //乗算のブロック処理（上位 64 ビットが符号拡張と一致しなければオーバーフロー）
+    private static boolean multiplyBlock(long[] a, long[] b, long[] out, int from, int to) {
+        long flags = 0;
+        for (int i = from; i < to; i++) {
+            long x = a[i];
+            long y = b[i];
+            long low = x * y;
+            out[i] = low;
+            flags |= Math.multiplyHigh(x, y) ^ (low >> 63);
+        }
+        return flags != 0;
+    }
+
+    /*
+     * 除算のブロック処理。
+     * 要素ごとに ScaledArithmetic で計算し、long で計算できない要素はその場で計算し直す。
+     * 0 除算の要素はエラーとする。
+     */
+    private static void divideBlock(Operator operator, ScaledColumn left, ScaledColumn right,
+                                    ScaledColumn result, int from, int to) {
+        long[] a = left.values();
+        long[] b = right.values();
+        long[] out = result.values();
+        ScaledValue quotient = new ScaledValue();
+        for (int i = from; i < to; i++) {
+            if (b[i] == 0) {
+                result.setError(i);
+            } else if (ScaledArithmetic.divide(a[i], left.getScale(), b[i], right.getScale(), Operator.DIV_SCALE, quotient)) {
+                out[i] = quotient.getUnscaled();
+            } else {
+                redo(operator, left, right, result, i);
+            }
+        }
+    }
+
+    //オーバーフローの判定フラグが立ったブロック内で、該当する要素だけを計算し直す
+    private static void redoOverflowed(Operator operator, ScaledColumn left, ScaledColumn right,
+                                       ScaledColumn result, int from, int to) {
+        ScaledValue exact = new ScaledValue();
+        long[] a = left.values();
+        long[] b = right.values();
+        for (int i = from; i < to; i++) {
+            if (!operator.applyScaled(a[i], left.getScale(), b[i], right.getScale(), exact)) {
+                redo(operator, left, right, result, i);
+            }
+        }
+    }
+
+    //1 要素を BigDecimal（Operator.apply）で計算する
+    private static void redo(Operator operator, ScaledColumn left, ScaledColumn right, ScaledColumn result, int index) {
+        BigDecimal x = left.get(index);
+        BigDecimal y = right.get(index);
+        if (x == null || y == null) {
+            result.setError(index);//エラーは伝播させる
+            return;
+        }
+        try {
+            BigDecimal value = operator.apply(x, y);
+            if (result.isError(index)) result.clearError(index);
+            // 列の scale で long に収まれば通常の要素として格納する
+            if (value.scale() == result.getScale() && value.precision() <= ScaledArithmetic.MAX_LONG_DIGITS) {
+                result.values()[index] = value.unscaledValue().longValue();
+                if (result.isSpilled(index)) result.setSpilled(index, null);
+            } else {
+                result.setSpilled(index, value);
+            }
+        } catch (ArithmeticException e) {
+            result.setError(index);
+        }
+    }
+
+    // ==================================================
+    // double の列
+    // ==================================================
+    /**
+     * 2 つの double 配列の要素ごとに演算を適用し、out に格納する。
+     * 0 除算の要素は NaN とする。
+     *
+     * @throws IllegalArgumentException 配列の長さが異なる場合
+     */
+    public static void apply(Operator operator, double[] left, double[] right, double[] out) {
+        if (left.length != right.length || left.length != out.length) {
+            throw new IllegalArgumentException("Column sizes differ");
+        }
+        run(new DoubleTask(operator, left, right, out, 0, left.length));
+    }
+
+    private static void compute(Operator operator, double[] a, double[] b, double[] out, int from, int to) {
+        switch (operator) {
+            case ADD:
+                for (int i = from; i < to; i++) out[i] = a[i] + b[i];
+                break;
+            case SUB:
+                for (int i = from; i < to; i++) out[i] = a[i] - b[i];
+                break;
+            case MUL:
+                for (int i = from; i < to; i++) out[i] = a[i] * b[i];
+                break;
+            case DIV:
+                for (int i = from; i < to; i++) out[i] = b[i] == 0 ? Double.NaN : a[i] / b[i];
+                break;
+            case POW:
+                //指数が整数でない場合・0 の負のべき乗は NaN（Operator.apply のエラーに相当）
+                for (int i = from; i < to; i++) {
+                    out[i] = b[i] != Math.rint(b[i]) || (a[i] == 0 && b[i] < 0) ? Double.NaN : Math.pow(a[i], b[i]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+    }
+
+    // ==================================================
+    // 並列処理
+    // ==================================================
+    //ForkJoinPool 内から呼ばれた場合はそのプールで、それ以外は共通プールで実行する
+    private static void run(RecursiveAction task) {
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    //固定小数点の列を分割して処理するタスク
+    private static final class ScaledTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Operator operator;
+        private final ScaledColumn left;
+        private final ScaledColumn right;
+        private final ScaledColumn result;
+        private final int from;
+        private final int to;
+
+        ScaledTask(Operator operator, ScaledColumn left, ScaledColumn right, ScaledColumn result, int from, int to) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                ColumnKernels.compute(operator, left, right, result, from, to);
+                return;
+            }
+            // ブロック境界で分割する
+            int middle = from + ((to - from) / 2 / BLOCK_SIZE) * BLOCK_SIZE;
+            invokeAll(new ScaledTask(operator, left, right, result, from, middle),
+                      new ScaledTask(operator, left, right, result, middle, to));
+        }
+    }
+
+    //double の列を分割して処理するタスク
+    private static final class DoubleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Operator operator;
+        private final double[] left;
+        private final double[] right;
+        private final double[] out;
+        private final int from;
+        private final int to;
+
+        DoubleTask(Operator operator, double[] left, double[] right, double[] out, int from, int to) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                ColumnKernels.compute(operator, left, right, out, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new DoubleTask(operator, left, right, out, from, middle),
+                      new DoubleTask(operator, left, right, out, middle, to));
+        }
+    }
+}
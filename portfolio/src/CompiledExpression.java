@@ -0,0 +1,223 @@
+/**
+ * コンパイル済み計算式クラス。
+ *
+ * 本クラスは、ExpressionParser が生成した構文木を
+ * 命令列（後置記法のスタックマシン）に変換し、繰り返し評価する。
+ * 同じ計算式を多数の入力値で評価する用途を想定し、
+ * 解析・変換はコンパイル時に一度だけ行う。
+ *
+ * 【コンパイル時の処理】
+ * - 定数同士の演算は事前に計算して 1 つの定数にまとめる（定数畳み込み）
+ *   ただし 0 除算など計算時に例外となるものは畳み込まず、評価時に例外とする
+ * - 変数は出現順にスロット番号を割り当てる
+ *
+ * 【評価時の処理】
+ * - 演算は命令コードによる分岐で BigDecimal の演算を直接呼び出す
+ *   （構文解析・Operator.fromDisplay の検索・関数オブジェクト経由の呼び出しを行わない）
+ * - 計算結果は Operator.apply と同じ（除算は scale 10 / HALF_UP）
+ * - 0 除算・整数でない指数のべき乗は ArithmeticException で通知する
+ *
+ * 本クラスのインスタンスは不変で、複数スレッドから同時に評価できる。
+ */
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+public class CompiledExpression {
+    // 命令コード（下位 8 ビット）。定数・変数の命令は上位ビットに添字を持つ
+    private static final int PUSH_CONSTANT = 0;
+    private static final int LOAD_VARIABLE = 1;
+    private static final int ADD = 2;
+    private static final int SUB = 3;
+    private static final int MUL = 4;
+    private static final int DIV = 5;
+    private static final int NEGATE = 6;
+    private static final int POW = 7;
+    private static final int OPCODE_BITS = 8;
+    private static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    private final int[] code;//命令列
+    private final BigDecimal[] constants;//定数表
+    private final List<String> variables;//スロット番号順の変数名
+    private final int maxStack;//評価に必要なスタックの深さ
+
+    private CompiledExpression(int[] code, BigDecimal[] constants, List<String> variables, int maxStack) {
+        this.code = code;
+        this.constants = constants;
+        this.variables = variables;
+        this.maxStack = maxStack;
+    }
+
+    /**
+     * 計算式を解析してコンパイルする。
+     *
+     * @throws IllegalArgumentException 書式に誤りがある場合
+     */
+    public static CompiledExpression compile(String source, ExpressionParser.Precedence precedence) {
+        return compile(ExpressionParser.parse(source, precedence));
+    }
+
+    /**
+     * 構文木をコンパイルする。
+     */
+    public static CompiledExpression compile(ExpressionParser.Tree tree) {
+        Emitter emitter = new Emitter();
+        emitter.emit(fold(tree.root));
+        return new CompiledExpression(
+                Arrays.copyOf(emitter.code, emitter.codeLength),
+                Arrays.copyOf(emitter.constants, emitter.constantCount),
+                tree.variables,
+                emitter.maxDepth);
+    }
+
+    // ==================================================
+    // 評価
+    // ==================================================
+    /**
+     * 計算式を評価する。
+     *
+     * @param values 変数の値（スロット番号順。getVariables() の順）
+     * @return 計算結果
+     * @throws ArithmeticException 0 除算・整数でない指数のべき乗の場合
+     * @throws IllegalArgumentException 変数の値の数が足りない場合
+     */
+    public BigDecimal evaluate(BigDecimal... values) {
+        if (values.length < variables.size()) {
+            throw new IllegalArgumentException("Expected " + variables.size() + " values but got " + values.length);
+        }
+        BigDecimal[] stack = new BigDecimal[maxStack];
+        int top = -1;
+        for (int instruction : code) {
+            switch (instruction & OPCODE_MASK) {
+                case PUSH_CONSTANT:
+                    stack[++top] = constants[instruction >>> OPCODE_BITS];
+                    break;
+                case LOAD_VARIABLE:
+                    stack[++top] = values[instruction >>> OPCODE_BITS];
+                    break;
+                case ADD:
+                    stack[top - 1] = stack[top - 1].add(stack[top]);
+                    top--;
+                    break;
+                case SUB:
+                    stack[top - 1] = stack[top - 1].subtract(stack[top]);
+                    top--;
+                    break;
+                case MUL:
+                    stack[top - 1] = stack[top - 1].multiply(stack[top]);
+                    top--;
+                    break;
+                case DIV:
+                    stack[top - 1] = Operator.divide(stack[top - 1], stack[top]);
+                    top--;
+                    break;
+                case NEGATE:
+                    stack[top] = stack[top].negate();
+                    break;
+                case POW:
+                    stack[top - 1] = Operator.power(stack[top - 1], stack[top]);
+                    top--;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown instruction: " + instruction);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * 変数名の一覧（添字 = スロット番号）
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * 変数名に対応するスロット番号（存在しない場合は -1）
+     */
+    public int slotOf(String name) {
+        return variables.indexOf(name);
+    }
+
+    // ==================================================
+    // 定数畳み込み
+    // ==================================================
+    private static ExpressionParser.Node fold(ExpressionParser.Node node) {
+        if (node instanceof ExpressionParser.Negate) {
+            ExpressionParser.Node operand = fold(((ExpressionParser.Negate) node).operand);
+            if (operand instanceof ExpressionParser.Constant) {
+                return new ExpressionParser.Constant(((ExpressionParser.Constant) operand).value.negate());
+            }
+            return new ExpressionParser.Negate(operand);
+        }
+        if (node instanceof ExpressionParser.Binary) {
+            ExpressionParser.Binary binary = (ExpressionParser.Binary) node;
+            ExpressionParser.Node left = fold(binary.left);
+            ExpressionParser.Node right = fold(binary.right);
+            if (left instanceof ExpressionParser.Constant && right instanceof ExpressionParser.Constant) {
+                try {
+                    return new ExpressionParser.Constant(binary.operator.apply(
+                            ((ExpressionParser.Constant) left).value,
+                            ((ExpressionParser.Constant) right).value));
+                } catch (ArithmeticException e) {
+                    // 0 除算などは畳み込まず、評価時に例外とする
+                }
+            }
+            return new ExpressionParser.Binary(binary.operator, left, right);
+        }
+        return node;
+    }
+
+    // ==================================================
+    // 命令列の生成
+    // ==================================================
+    private static final class Emitter {
+        int[] code = new int[16];
+        int codeLength;
+        BigDecimal[] constants = new BigDecimal[8];
+        int constantCount;
+        int depth;
+        int maxDepth;
+
+        void emit(ExpressionParser.Node node) {
+            if (node instanceof ExpressionParser.Constant) {
+                if (constantCount == constants.length) {
+                    constants = Arrays.copyOf(constants, constantCount * 2);
+                }
+                constants[constantCount] = ((ExpressionParser.Constant) node).value;
+                push(PUSH_CONSTANT | (constantCount++ << OPCODE_BITS), 1);
+            } else if (node instanceof ExpressionParser.Variable) {
+                push(LOAD_VARIABLE | (((ExpressionParser.Variable) node).slot << OPCODE_BITS), 1);
+            } else if (node instanceof ExpressionParser.Negate) {
+                emit(((ExpressionParser.Negate) node).operand);
+                push(NEGATE, 0);
+            } else {
+                ExpressionParser.Binary binary = (ExpressionParser.Binary) node;
+                emit(binary.left);
+                emit(binary.right);
+                push(opcode(binary.operator), -1);
+            }
+        }
+
+        //命令を追加し、スタックの深さを更新する
+        private void push(int instruction, int stackEffect) {
+            if (codeLength == code.length) {
+                code = Arrays.copyOf(code, codeLength * 2);
+            }
+            code[codeLength++] = instruction;
+            depth += stackEffect;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private static int opcode(Operator operator) {
+            switch (operator) {
+                case ADD: return ADD;
+                case SUB: return SUB;
+                case MUL: return MUL;
+                case DIV: return DIV;
+                case POW: return POW;
+                default: throw new IllegalArgumentException("Unsupported operator: " + operator);
+            }
+        }
+    }
+}
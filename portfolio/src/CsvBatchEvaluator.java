@@ -0,0 +1,480 @@
+/**
+ * CSV 一括計算クラス。
+ *
+ * 本クラスは、1 行 1 計算の CSV ファイルを読み込み、各行の計算結果を
+ * 電卓の表示規則（FormatterUtil）で整形して、入力と同じ順に 1 行ずつ出力する。
+ * Swing は使用しない。
+ *
+ * 【入力行の形式】
+ * - 「左辺,演算子,右辺」 例: 12.5,×,3 / 7,/,0 / 16,√,
+ *   演算子は表示文字・キー文字のどちらも使える（+ - × * ÷ / ^ xʸ √ @ % r 1/x）。
+ *   単項演算子の場合、右辺は無視する
+ * - カンマを含まない行は電卓のキー列（例: 12+3×4=）として CalculatorModel で計算する
+ *   （末尾に = がなくても = を押した状態の表示とする。
+ *   入力の桁数の上限（8 桁）を超える数値は、画面のように切り捨てず ERROR とする）
+ * - 0 除算などの計算エラー、数値・演算子として解釈できない行は「ERROR」とする
+ *   （指数表記の数値は、桁の位置が表示範囲 10^±Operator.MAX_EXPONENT を超える場合 ERROR とする）
+ * - 空行は空行として出力する
+ *
+ * 【設計方針】
+ * - 入力ファイルは行の区切りに合わせたチャンクに分け、チャンクごとにメモリマップして並列に処理する
+ * - 数値はマップしたバイト列から直接 long（unscaled・scale）に変換し、文字列は生成しない
+ *   （long に収まらない・指数表記の場合のみ BigDecimal に変換する）
+ * - 計算は CalculatorModel と同じく、long に収まる場合は Operator.applyScaled、
+ *   それ以外は PrecisionPolicy を適用した BigDecimal で行う
+ * - チャンクの結果はチャンクごとのバッファに書き、入力順に出力先のチャンネルへ書き込む
+ *   （処理中のチャンク数は上限を設け、全件分の結果は保持しない）
+ * - ForkJoinPool はインスタンスごとに生成するため、使い終えたら close で終了する
+ */
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CsvBatchEvaluator implements AutoCloseable {
+    // 1 チャンクの目安の大きさ（実際の境界は次の改行の直後とする）
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+    // 表示上の最大桁数（CalculatorModel と同じ）
+    public static final int DEFAULT_MAX_DIGITS = 8;
+    private static final byte[] ERROR = "ERROR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte NEWLINE = '\n';
+    // 境界探索時の読み込み単位
+    private static final int SCAN_SIZE = 8 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int maxDigits;
+    private final PrecisionPolicy precision = PrecisionPolicy.defaultPolicy();
+    // long のままの計算結果が有効桁数の上限を超えることがないか（超えうる場合は BigDecimal で計算する）
+    private final boolean scaledAllowed = precision.isExact() || precision.getDigits() > ScaledArithmetic.MAX_LONG_DIGITS;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public CsvBatchEvaluator(int parallelism, int chunkSize, int maxDigits) {
+        if (parallelism < 1 || chunkSize < 1 || maxDigits < 1) {
+            throw new IllegalArgumentException("parallelism, chunkSize and maxDigits must be positive");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.maxDigits = maxDigits;
+    }
+
+    public CsvBatchEvaluator() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE, DEFAULT_MAX_DIGITS);
+    }
+
+    //計算用のスレッドを終了する（実行中の計算は最後まで行う）
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    //処理した行数
+    public long getRows() {
+        return rows.sum();
+    }
+
+    //ERROR となった行数
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    // ==================================================
+    // 一括計算
+    // ==================================================
+    /**
+     * input の全行を計算し、結果を入力順に output へ書き込む。
+     *
+     * @return 処理した行数
+     */
+    public long evaluate(Path input, WritableByteChannel output) throws IOException, InterruptedException {
+        long before = rows.sum();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long[] boundaries = split(channel);
+            //処理中のチャンクは並列数の 2 倍までとし、先頭から順に書き出す
+            ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+            int next = 0;
+            try {
+                while (next < boundaries.length - 1 || !pending.isEmpty()) {
+                    while (next < boundaries.length - 1 && pending.size() < parallelism * 2) {
+                        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                                boundaries[next], boundaries[next + 1] - boundaries[next]);
+                        pending.add(pool.submit(() -> evaluateChunk(chunk)));
+                        next++;
+                    }
+                    ByteBuffer result = await(pending.poll());
+                    while (result.hasRemaining()) {
+                        output.write(result);
+                    }
+                }
+            } finally {
+                //失敗した場合、投入済みで未出力のチャンクは計算を取り消す
+                for (Future<ByteBuffer> future : pending) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return rows.sum() - before;
+    }
+
+    //ファイルを行の区切りに合わせたチャンクに分け、各チャンクの開始位置（と末尾）を返す
+    private long[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        long position = 0;
+        while (size - position > chunkSize) {
+            //目安の位置から次の改行を探し、その直後を境界とする
+            long offset = position + chunkSize;
+            long boundary = -1;
+            while (boundary < 0 && offset < size) {
+                scan.clear();
+                int read = channel.read(scan, offset);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    if (scan.get(i) == '\n') {
+                        boundary = offset + i + 1;
+                        break;
+                    }
+                }
+                offset += read;
+            }
+            if (boundary < 0 || boundary >= size) break;
+            boundaries.add(boundary);
+            position = boundary;
+        }
+        boundaries.add(size);
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    private static ByteBuffer await(Future<ByteBuffer> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // ==================================================
+    // チャンクの計算（ワーカースレッド）
+    // ==================================================
+    //チャンク内の全行を計算し、結果の行を並べたバッファを返す
+    private ByteBuffer evaluateChunk(ByteBuffer chunk) {
+        ChunkEvaluator evaluator = new ChunkEvaluator(chunk.limit());
+        int limit = chunk.limit();
+        int start = 0;
+        long count = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && chunk.get(end) != '\n') {
+                end++;
+            }
+            //最終行は改行がない場合も 1 行とする
+            int lineEnd = end > start && chunk.get(end - 1) == '\r' ? end - 1 : end;
+            evaluator.evaluateLine(chunk, start, lineEnd);
+            count++;
+            start = end + 1;
+        }
+        rows.add(count);
+        return evaluator.result();
+    }
+
+    //1 チャンク分の計算（作業領域と出力バッファを持つ）
+    private final class ChunkEvaluator {
+        private byte[] out;
+        private int outLength;
+        private final ScaledValue left = new ScaledValue();
+        private final ScaledValue right = new ScaledValue();
+        private final ScaledValue result = new ScaledValue();
+        private char[] chars = new char[32];//BigDecimal に変換する場合の作業領域
+        private CalculatorModel model;//キー列の行の計算用（必要になった時点で生成する）
+
+        ChunkEvaluator(int inputSize) {
+            //出力は入力と同程度の大きさとして確保し、足りなければ拡張する
+            out = new byte[Math.max(64, inputSize)];
+        }
+
+        ByteBuffer result() {
+            return ByteBuffer.wrap(out, 0, outLength);
+        }
+
+        void evaluateLine(ByteBuffer line, int from, int to) {
+            if (from == to) {
+                write(NEWLINE);
+                return;
+            }
+            int firstComma = indexOf(line, from, to, ',');
+            String text;
+            try {
+                text = firstComma < 0 ? evaluateKeys(line, from, to) : evaluateRow(line, from, to, firstComma);
+            } catch (RuntimeException e) {
+                //1 行の失敗で全体を止めないよう、想定外の例外もその行の ERROR とする
+                text = null;
+            }
+            if (text == null || text.equals("ERROR")) {
+                errors.increment();
+                write(ERROR);
+            } else {
+                write(text);
+            }
+            write(NEWLINE);
+        }
+
+        //「左辺,演算子,右辺」の行（解釈できない場合は null）
+        private String evaluateRow(ByteBuffer line, int from, int to, int firstComma) {
+            int secondComma = indexOf(line, firstComma + 1, to, ',');
+            if (secondComma < 0) return null;
+            Operator operator = parseOperator(line, firstComma + 1, secondComma);
+            if (operator == null) return null;
+            BigDecimal leftDecimal = parseNumber(line, from, firstComma, left);
+            if (leftDecimal == null && !isScaled(left)) return null;
+
+            if (operator.isUnary()) {
+                BigDecimal value = leftDecimal != null ? leftDecimal : left.toBigDecimal();
+                return FormatterUtil.formatForDisplay(precision.normalize(operator.apply(value)), maxDigits);
+            }
+            BigDecimal rightDecimal = parseNumber(line, secondComma + 1, to, right);
+            if (rightDecimal == null && !isScaled(right)) return null;
+            // 左辺・右辺とも long に収まれば固定小数点で計算（BigDecimal の計算と同じ結果）
+            if (scaledAllowed && leftDecimal == null && rightDecimal == null
+                    && operator.applyScaled(left.getUnscaled(), left.getScale(),
+                                            right.getUnscaled(), right.getScale(), result)) {
+                return FormatterUtil.formatForDisplay(result.getUnscaled(), result.getScale(), maxDigits);
+            }
+            BigDecimal l = leftDecimal != null ? leftDecimal : left.toBigDecimal();
+            BigDecimal r = rightDecimal != null ? rightDecimal : right.toBigDecimal();
+            return FormatterUtil.formatForDisplay(precision.apply(operator, l, r), maxDigits);
+        }
+
+        /*
+         * キー列の行（画面で入力した場合と同じ表示）。
+         * 桁数の上限を超える数値は null を返す。
+         * 計算エラーは「左辺,演算子,右辺」の行と同じく ERROR の表示のみとし、ErrorHandler には通知しない。
+         */
+        private String evaluateKeys(ByteBuffer line, int from, int to) {
+            if (model == null) {
+                model = new CalculatorModel(precision);
+                model.setErrorReporting(false);
+            }
+            byte[] bytes = new byte[to - from];
+            line.get(from, bytes);
+            String keys = new String(bytes, StandardCharsets.UTF_8);
+            model.clearAll();
+            for (int i = 0; i < keys.length(); i++) {
+                char key = keys.charAt(i);
+                if (key >= '0' && key <= '9' && model.isInputFull()) {
+                    return null;
+                }
+                InputDispatcher.dispatch(model, key);
+            }
+            model.equalsOp();
+            return model.getDisplayText();
+        }
+
+        /*
+         * 数値をバイト列から変換する。
+         * long に収まる場合は target に設定して null を返し、
+         * 収まらない場合は BigDecimal を返す。
+         * 解釈できない場合は target の scale を -1 にして null を返す。
+         */
+        private BigDecimal parseNumber(ByteBuffer line, int from, int to, ScaledValue target) {
+            while (from < to && line.get(from) == ' ') from++;
+            while (to > from && line.get(to - 1) == ' ') to--;
+            int i = from;
+            boolean negative = false;
+            if (i < to && (line.get(i) == '-' || line.get(i) == '+')) {
+                negative = line.get(i) == '-';
+                i++;
+            }
+            long unscaled = 0;
+            int digits = 0;//先頭の 0 を除いた桁数
+            int scale = 0;
+            boolean dot = false;
+            boolean any = false;
+            for (; i < to; i++) {
+                byte b = line.get(i);
+                if (b >= '0' && b <= '9') {
+                    any = true;
+                    if (digits == 0 && b == '0') {
+                        if (dot) scale++;
+                        continue;
+                    }
+                    if (++digits > ScaledArithmetic.MAX_LONG_DIGITS) {
+                        return parseDecimal(line, from, to, target);
+                    }
+                    unscaled = unscaled * 10 + (b - '0');
+                    if (dot) scale++;
+                } else if (b == '.' && !dot) {
+                    dot = true;
+                } else {
+                    // 指数表記など
+                    return parseDecimal(line, from, to, target);
+                }
+            }
+            if (!any) {
+                target.set(0, -1);
+                return null;
+            }
+            target.set(negative ? -unscaled : unscaled, scale);
+            return null;
+        }
+
+        //BigDecimal として変換する（解釈できない・表示範囲外の場合は target の scale を -1 にして null を返す）
+        private BigDecimal parseDecimal(ByteBuffer line, int from, int to, ScaledValue target) {
+            int length = to - from;
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) (line.get(from + i) & 0xFF);
+            }
+            try {
+                BigDecimal value = new BigDecimal(chars, 0, length);
+                if (inDisplayRange(value)) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                //解釈できない数値
+            }
+            target.set(0, -1);
+            return null;
+        }
+
+        //scale・整数部の桁数がともに表示範囲内か（1e-2147483647 などの極端な指数を除く）
+        private boolean inDisplayRange(BigDecimal value) {
+            long integerDigits = (long) value.precision() - value.scale();
+            return Math.abs((long) value.scale()) <= Operator.MAX_EXPONENT
+                    && Math.abs(integerDigits) <= Operator.MAX_EXPONENT;
+        }
+
+        private boolean isScaled(ScaledValue value) {
+            return value.getScale() >= 0;
+        }
+
+        //演算子（表示文字・キー文字。UTF-8 の × ÷ √ はバイト列のまま判定する）
+        private Operator parseOperator(ByteBuffer line, int from, int to) {
+            while (from < to && line.get(from) == ' ') from++;
+            while (to > from && line.get(to - 1) == ' ') to--;
+            int length = to - from;
+            if (length == 1) {
+                return Operator.fromKey((char) line.get(from));
+            }
+            if (length == 2 && line.get(from) == (byte) 0xC3) {
+                if (line.get(from + 1) == (byte) 0x97) return Operator.MUL;//×
+                if (line.get(from + 1) == (byte) 0xB7) return Operator.DIV;//÷
+            }
+            if (length == 3 && line.get(from) == (byte) 0xE2 && line.get(from + 1) == (byte) 0x88
+                    && line.get(from + 2) == (byte) 0x9A) {
+                return Operator.SQRT;//√
+            }
+            if (length == 0 || length > 8) return null;
+            //その他の表示文字（xʸ 1/x）
+            byte[] bytes = new byte[length];
+            line.get(from, bytes);
+            return Operator.fromDisplay(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        private int indexOf(ByteBuffer line, int from, int to, char target) {
+            for (int i = from; i < to; i++) {
+                if (line.get(i) == target) return i;
+            }
+            return -1;
+        }
+
+        // ---- 出力 ----
+        private void write(byte b) {
+            ensure(1);
+            out[outLength++] = b;
+        }
+
+        private void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, out, outLength, bytes.length);
+            outLength += bytes.length;
+        }
+
+        //表示文字列は ASCII のみ（数字・符号・小数点・e）
+        private void write(String text) {
+            int length = text.length();
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                out[outLength + i] = (byte) text.charAt(i);
+            }
+            outLength += length;
+        }
+
+        private void ensure(int length) {
+            if (outLength + length > out.length) {
+                out = java.util.Arrays.copyOf(out, Math.max(out.length * 2, outLength + length));
+            }
+        }
+    }
+
+    // ==================================================
+    // CLI
+    // ==================================================
+    /**
+     * 使い方: CsvBatchEvaluator [--threads N] [--digits N] input.csv [output | -]
+     *
+     * 結果を出力先（省略時・- の場合は標準出力）へ、
+     * 行数・ERROR の行数・rows/sec を標準エラー出力へ出力する。
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int digits = DEFAULT_MAX_DIGITS;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--digits") && i + 1 < args.length) {
+                digits = Integer.parseInt(args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: CsvBatchEvaluator [--threads N] [--digits N] input.csv [output | -]");
+            System.exit(2);
+        }
+        Path input = Paths.get(files.get(0));
+        String target = files.size() > 1 ? files.get(1) : "-";
+        CsvBatchEvaluator evaluator = new CsvBatchEvaluator(threads, DEFAULT_CHUNK_SIZE, digits);
+        long start = System.nanoTime();
+        long count;
+        try (evaluator;
+             WritableByteChannel output = target.equals("-")
+                ? Channels.newChannel(new FileOutputStream(java.io.FileDescriptor.out))
+                : FileChannel.open(Paths.get(target), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            count = evaluator.evaluate(input, output);
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.err.printf("rows=%d errors=%d elapsed=%.3fs rows/sec=%.0f%n",
+                count, evaluator.getErrors(), seconds, seconds > 0 ? count / seconds : 0.0);
+    }
+}
@@ -9,10 +9,57 @@
  * - 本クラスではアプリケーション状態の変更は行わない
  *   （ERROR 状態への遷移は Model 側の責務とする）
  * - 画面表示の更新やユーザー通知は行わない
- * - 現状は標準エラー出力へのログ出力のみを行う
- * - 将来的にログファイル出力等へ拡張可能な構成とする
+ * - 呼び出し元のスレッドでは例外の種類ごとの件数を数え、キューに積むのみとする
+ *   （文字列の組み立てと出力は行わない）
+ * - キューは上限付きとし、専用スレッドがまとめて取り出して 1 回の書き込みで出力する
+ * - キューが満杯の場合は破棄（DROP）または空くまで待機（BLOCK）する
+ * - 出力先は標準エラー出力とし、システムプロパティ calculator.errorlog で
+ *   ファイルを指定した場合はそのファイルに追記する
+ *
+ * 【システムプロパティ】
+ * - calculator.errorlog          出力先のファイル（未指定時は標準エラー出力）
+ * - calculator.errorlog.capacity キューの上限（既定 8192）
+ * - calculator.errorlog.policy   満杯時の動作 DROP / BLOCK（既定 DROP。大文字・小文字は区別しない）
+ * 解釈できない値は標準エラー出力に通知し、既定値を使う。
  */
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 public class ErrorHandler {
+    /**
+     * キューが満杯のときの動作
+     */
+    public enum OverflowPolicy {
+        DROP,//破棄して件数のみ数える
+        BLOCK//空くまで呼び出し元を待たせる
+    }
+
+    private static final String PREFIX = "[Calculator Error] ";
+    // 1 回の書き込みでまとめる最大件数
+    private static final int BATCH_SIZE = 256;
+    // キューの上限の既定値
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    // 例外の種類ごとの件数
+    private static final ConcurrentHashMap<Class<?>, LongAdder> COUNTS = new ConcurrentHashMap<>();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static volatile OverflowPolicy overflowPolicy = policyProperty();
+
     // ユーティリティクラスのためインスタンス化を禁止
     private ErrorHandler() {}
     /**
@@ -21,9 +68,173 @@ public class ErrorHandler {
      * @param e 発生した例外
      */
     public static void handle(Exception e) {
-        // 本来はログファイルに出力するが、開発・デバッグ段階では標準エラー出力とする
-        System.err.println("[Calculator Error] " + e.getMessage());
+        COUNTS.computeIfAbsent(e.getClass(), type -> new LongAdder()).increment();
+        Writer.INSTANCE.submit(e, overflowPolicy);
     }
-}
 
+    // ==================================================
+    // 設定・統計
+    // ==================================================
+    public static void setOverflowPolicy(OverflowPolicy policy) {
+        overflowPolicy = policy;
+    }
+
+    public static OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    //システムプロパティ calculator.errorlog.policy（未指定・解釈できない場合は DROP）
+    private static OverflowPolicy policyProperty() {
+        String value = System.getProperty("calculator.errorlog.policy");
+        if (value == null) return OverflowPolicy.DROP;
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            if (policy.name().equalsIgnoreCase(value.trim())) return policy;
+        }
+        System.err.println(PREFIX + "Invalid calculator.errorlog.policy: " + value);
+        return OverflowPolicy.DROP;
+    }
+
+    //システムプロパティ calculator.errorlog.capacity（未指定・解釈できない・1 未満の場合は既定値）
+    private static int capacityProperty() {
+        int capacity = Integer.getInteger("calculator.errorlog.capacity", DEFAULT_CAPACITY);
+        if (capacity < 1) {
+            System.err.println(PREFIX + "Invalid calculator.errorlog.capacity: " + capacity);
+            return DEFAULT_CAPACITY;
+        }
+        return capacity;
+    }
+
+    //指定した種類の例外を処理した件数（サブクラスは含まない）
+    public static long getCount(Class<? extends Exception> type) {
+        LongAdder count = COUNTS.get(type);
+        return count == null ? 0 : count.sum();
+    }
+
+    //例外の種類（クラス名）ごとの件数
+    public static Map<String, Long> getCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        COUNTS.forEach((type, count) -> counts.put(type.getName(), count.sum()));
+        return counts;
+    }
+
+    //キューが満杯のため出力しなかった件数
+    public static long getDropped() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * 呼び出し時点までに受け付けた例外の出力が終わるまで待つ。
+     *
+     * @param timeoutMillis 最大待ち時間
+     * @return 出力が終わった場合 true
+     */
+    public static boolean flush(long timeoutMillis) throws InterruptedException {
+        return Writer.INSTANCE.awaitWritten(timeoutMillis);
+    }
+
+    // ==================================================
+    // 出力処理
+    // ==================================================
+    //キューと出力スレッド（初回の handle で生成する）
+    private static final class Writer implements Runnable {
+        static final Writer INSTANCE = new Writer();
+
+        private final ArrayBlockingQueue<Exception> queue =
+                new ArrayBlockingQueue<>(capacityProperty());
+        private final FileChannel channel = openChannel();
+        private final AtomicLong submitted = new AtomicLong();//キューに積んだ件数
+        private long written;//出力を終えた件数（this を保持して読み書きする）
+
+        private Writer() {
+            Thread thread = new Thread(this, "calculator-error-writer");
+            thread.setDaemon(true);
+            thread.start();
+            //終了時に残りを出力する
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    awaitWritten(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        private static FileChannel openChannel() {
+            String path = System.getProperty("calculator.errorlog");
+            if (path != null) {
+                try {
+                    return FileChannel.open(Paths.get(path),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                } catch (IOException e) {
+                    System.err.println(PREFIX + "Cannot open " + path + ": " + e.getMessage());
+                }
+            }
+            return new FileOutputStream(FileDescriptor.err).getChannel();
+        }
+
+        void submit(Exception e, OverflowPolicy policy) {
+            if (policy == OverflowPolicy.BLOCK) {
+                try {
+                    queue.put(e);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    DROPPED.increment();
+                    return;
+                }
+            } else if (!queue.offer(e)) {
+                DROPPED.increment();
+                return;
+            }
+            submitted.incrementAndGet();
+        }
 
+        boolean awaitWritten(long timeoutMillis) throws InterruptedException {
+            long target = submitted.get();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            synchronized (this) {
+                while (written < target) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) return false;
+                    wait(remaining);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            List<Exception> batch = new ArrayList<>(BATCH_SIZE);
+            StringBuilder text = new StringBuilder(4096);
+            while (true) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                text.setLength(0);
+                for (Exception e : batch) {
+                    text.append(PREFIX).append(e.getMessage()).append(System.lineSeparator());
+                }
+                write(text);
+                synchronized (this) {
+                    written += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        }
+
+        private void write(CharSequence text) {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                // 出力できない場合は破棄する（ここで handle を呼ぶと循環するため）
+                DROPPED.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * 計算式パーサークラス。
+ *
+ * 本クラスは、中置記法の計算式（例: "price × 1.08 + 100"）を解析し、
+ * Operator を節点とする構文木（AST）を生成する。
+ * 生成した構文木は CompiledExpression でコンパイルして評価する。
+ *
+ * 【対応する書式】
+ * - 数値: 0〜9 と小数点（例: 12, 0.5, 3.）
+ * - 演算子: + - ×(*) ÷(/) ^（べき乗。指数は整数のみ）
+ * - 負号: 数値・変数・括弧の前の "-"（例: -5, 2×-x）
+ * - 括弧: ( )
+ * - 変数: 英字または _ で始まる英数字列（例: x, rate_1）
+ * - 空白は無視する
+ *
+ * 【演算順序】
+ * - CALCULATOR: 電卓と同じく、演算子の種類によらず左から順に計算する
+ *   （CalculatorModel の即時実行と同じ結果。2+3×4 = 20）
+ * - STANDARD  : × ÷ を + - より先に計算する（2+3×4 = 14）
+ *               ^ はさらに先に計算し、右から結合する（2^3^2 = 2^9）
+ * いずれの場合も括弧内を先に計算する。
+ *
+ * 書式に誤りがある場合は IllegalArgumentException を送出する。
+ */
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ExpressionParser {
+
+    /**
+     * 演算順序の種類
+     */
+    public enum Precedence {
+        CALCULATOR, // 左から順に計算（電卓方式）
+        STANDARD    // × ÷ を優先（数学の標準）
+    }
+
+    private final String source;
+    private final Precedence precedence;
+    private final List<String> variables = new ArrayList<>();//出現順の変数名（添字 = スロット番号）
+    private int position;
+
+    private ExpressionParser(String source, Precedence precedence) {
+        this.source = source;
+        this.precedence = precedence;
+    }
+
+    /**
+     * 計算式を構文木に変換する。
+     *
+     * @param source 計算式
+     * @param precedence 演算順序
+     * @return 構文木（変数名の一覧を含む）
+     * @throws IllegalArgumentException 書式に誤りがある場合
+     */
+    public static Tree parse(String source, Precedence precedence) {
+        ExpressionParser parser = new ExpressionParser(source, precedence);
+        Node root = parser.parseExpression(0);
+        parser.skipSpaces();
+        if (parser.position < source.length()) {
+            throw parser.error("Unexpected character '" + source.charAt(parser.position) + "'");
+        }
+        return new Tree(root, parser.variables);
+    }
+
+    // ==================================================
+    // 構文解析（優先順位法）
+    // ==================================================
+    //優先順位が minLevel 以上の二項演算をまとめて読む
+    private Node parseExpression(int minLevel) {
+        Node left = parseUnary();
+        while (true) {
+            skipSpaces();
+            if (position >= source.length()) return left;
+            Operator operator = Operator.fromKey(source.charAt(position));
+            //単項演算子（√ % 1/x）は計算式では扱わない
+            if (operator == null || operator.isUnary()) return left;
+            int level = level(operator);
+            if (level < minLevel) return left;
+            position++;
+            // 左結合：右辺は一段高い優先順位の演算までを読む（右結合の ^ は同じ優先順位まで）
+            boolean rightAssociative = operator == Operator.POW && precedence == Precedence.STANDARD;
+            Node right = parseExpression(rightAssociative ? level : level + 1);
+            left = new Binary(operator, left, right);
+        }
+    }
+
+    //負号付きの項
+    private Node parseUnary() {
+        skipSpaces();
+        if (position < source.length() && source.charAt(position) == '-') {
+            position++;
+            return new Negate(parseUnary());
+        }
+        return parsePrimary();
+    }
+
+    //数値・変数・括弧
+    private Node parsePrimary() {
+        skipSpaces();
+        if (position >= source.length()) {
+            throw error("Unexpected end of expression");
+        }
+        char c = source.charAt(position);
+        if (c == '(') {
+            position++;
+            Node inner = parseExpression(0);
+            skipSpaces();
+            if (position >= source.length() || source.charAt(position) != ')') {
+                throw error("Missing ')'");
+            }
+            position++;
+            return inner;
+        }
+        if (isDigit(c) || c == '.') {
+            return parseNumber();
+        }
+        if (Character.isLetter(c) || c == '_') {
+            return parseVariable();
+        }
+        throw error("Unexpected character '" + c + "'");
+    }
+
+    private Node parseNumber() {
+        int start = position;
+        boolean dot = false;
+        int digits = 0;
+        while (position < source.length()) {
+            char c = source.charAt(position);
+            if (isDigit(c)) {
+                digits++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+            position++;
+        }
+        if (digits == 0) {
+            position = start;
+            throw error("Invalid number");
+        }
+        return new Constant(new BigDecimal(source.substring(start, position)));
+    }
+
+    private Node parseVariable() {
+        int start = position;
+        while (position < source.length()
+                && (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) {
+            position++;
+        }
+        String name = source.substring(start, position);
+        int slot = variables.indexOf(name);
+        if (slot < 0) {
+            slot = variables.size();
+            variables.add(name);
+        }
+        return new Variable(name, slot);
+    }
+
+    // ==================================================
+    // 補助メソッド
+    // ==================================================
+    //演算子の優先順位（大きいほど先に計算する）
+    private int level(Operator operator) {
+        if (precedence == Precedence.CALCULATOR) return 1;
+        switch (operator) {
+            case MUL:
+            case DIV:
+                return 2;
+            case POW:
+                return 3;
+            default:
+                return 1;
+        }
+    }
+
+    private void skipSpaces() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + ": " + source);
+    }
+
+    // ==================================================
+    // 構文木
+    // ==================================================
+    /**
+     * 解析結果（構文木の根と、出現順の変数名）
+     */
+    public static final class Tree {
+        final Node root;
+        final List<String> variables;
+
+        Tree(Node root, List<String> variables) {
+            this.root = root;
+            this.variables = List.copyOf(variables);
+        }
+
+        public List<String> getVariables() {
+            return variables;
+        }
+    }
+
+    //構文木の節点
+    abstract static class Node {
+    }
+
+    //定数
+    static final class Constant extends Node {
+        final BigDecimal value;
+
+        Constant(BigDecimal value) {
+            this.value = value;
+        }
+    }
+
+    //変数（slot は評価時に渡す値の添字）
+    static final class Variable extends Node {
+        final String name;
+        final int slot;
+
+        Variable(String name, int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+    }
+
+    //負号
+    static final class Negate extends Node {
+        final Node operand;
+
+        Negate(Node operand) {
+            this.operand = operand;
+        }
+    }
+
+    //二項演算
+    static final class Binary extends Node {
+        final Operator operator;
+        final Node left;
+        final Node right;
+
+        Binary(Operator operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+    }
+}
@@ -6,40 +6,231 @@
  *
  * 数値の桁数が maxDigits を超える場合は指数表記とし、
  * 整数値の場合は不要な小数点（.0）を付与しない。
- * また、末尾の不要な 0 は stripTrailingZeros() により除去する。
+ * また、末尾の不要な 0 は除去する。
+ *
+ * 【高速化】
+ * - 整数部の桁数は precision() と scale() から求め、10 進文字列への変換は行わない
+ * - unscaled 値が long に収まる場合は、BigDecimal を使わずに
+ *   スレッドごとに再利用する char バッファへ直接書き込む
+ * - 直近に整形した値は小さなキャッシュに保持し、同じ値の再整形を省く
  *
  * 本クラスは計算処理や状態管理は行わない。
  */
 import java.math.BigDecimal;
 
 public class FormatterUtil {
+    // long に収まる 10 進桁数（これ以下なら long のまま整形する）
+    private static final int LONG_PRECISION = 18;
+    // 整形結果キャッシュ（直接マップ方式、サイズは 2 のべき乗）
+    private static final int CACHE_SIZE = 64;
+    private static final CacheEntry[] CACHE = new CacheEntry[CACHE_SIZE];
+    // 文字列組み立て用バッファ（スレッドごとに再利用し、足りなければ拡張する）
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[32]);
+
+    // ユーティリティクラスのためインスタンス化を禁止
+    private FormatterUtil() {}
 
     //Model から呼ばれ、View に渡される文字列を生成する
     public static String formatForDisplay(BigDecimal value, int maxDigits) {
-        /*
-         * 末尾の不要な 0 を除去
-         */
+        if (!CalculatorMetrics.ENABLED) return format(value, maxDigits);
+        long start = System.nanoTime();
+        String text = format(value, maxDigits);
+        CalculatorMetrics.recordFormat(System.nanoTime() - start, text.indexOf('e') >= 0);
+        return text;
+    }
+
+    /**
+     * unscaled 値と scale で表された数値（unscaled × 10^-scale）を整形する。
+     * BigDecimal.valueOf(unscaled, scale) を整形した結果と同じ文字列を返す。
+     */
+    public static String formatForDisplay(long unscaled, int scale, int maxDigits) {
+        if (!CalculatorMetrics.ENABLED) return format(unscaled, scale, maxDigits);
+        long start = System.nanoTime();
+        String text = format(unscaled, scale, maxDigits);
+        CalculatorMetrics.recordFormat(System.nanoTime() - start, text.indexOf('e') >= 0);
+        return text;
+    }
+
+    // ==================================================
+    // 整形処理
+    // ==================================================
+    private static String format(BigDecimal value, int maxDigits) {
         if (value == null) return "0";
-        //小数点の.0表示を削除、だけを整える。計算値は変えず、表示だけを整える
-        BigDecimal normalized = value.stripTrailingZeros();
-        // 整数部の桁数（符号なし）
-        int integerDigits =normalized.abs().toBigInteger().toString().length();
+        // 直近に整形した値であればキャッシュを返す
+        int index = (value.hashCode() * 31 + maxDigits) & (CACHE_SIZE - 1);
+        CacheEntry cached = CACHE[index];
+        if (cached != null && cached.maxDigits == maxDigits
+                && (cached.value == value || cached.value.equals(value))) {
+            return cached.text;
+        }
+        String text;
+        if (value.precision() <= LONG_PRECISION) {
+            text = format(value.unscaledValue().longValue(), value.scale(), maxDigits);
+        } else {
+            text = formatLarge(value, maxDigits);
+        }
+        CACHE[index] = new CacheEntry(value, maxDigits, text);
+        return text;
+    }
+
+    private static String format(long unscaled, int scale, int maxDigits) {
+        if (unscaled == 0) return "0";
+        if (unscaled == Long.MIN_VALUE) {
+            //符号反転できないため BigDecimal で整形する
+            return formatLarge(BigDecimal.valueOf(unscaled, scale), maxDigits);
+        }
+        //末尾の不要な 0 を除去（値は変えず、表示だけを整える）
+        long normalizedScale = scale;
+        while (unscaled % 10 == 0) {
+            unscaled /= 10;
+            normalizedScale--;
+        }
+        boolean negative = unscaled < 0;
+        long magnitude = Math.abs(unscaled);
+        int digits = digitCount(magnitude);
+        // 整数部の桁数（符号なし、1 未満の値は "0" の 1 桁）
+        long integerDigits = Math.max(1, digits - normalizedScale);
         // 規定桁数以内なら通常表示
         if (integerDigits <= maxDigits) {
-            return normalized.toPlainString();
+            return plain(negative, magnitude, digits, normalizedScale);
         }
         /*
          * ---- 指数表記 ----
          * 先頭 1 桁 × 10^n
          */
-        //10の何乗か
-        int exponent = integerDigits - 1;
-        //小数点を左に移動、不要な 0 を削除
-        BigDecimal mantissa =normalized.movePointLeft(exponent).stripTrailingZeros();
-        return mantissa.toPlainString() + "e" + exponent;//e を使う
+        long exponent = integerDigits - 1;
+        return scientific(negative, magnitude, digits, exponent);
     }
-}
 
+    // ==================================================
+    // long に収まらない値
+    // ==================================================
+    private static String formatLarge(BigDecimal value, int maxDigits) {
+        // 整数部の桁数（符号なし）。末尾の 0 の有無によらず precision - scale で求まる
+        long integerDigits = Math.max(1, (long) value.precision() - value.scale());
+        BigDecimal normalized = value.stripTrailingZeros();
+        // 規定桁数以内なら通常表示
+        if (integerDigits <= maxDigits) {
+            return normalized.toPlainString();
+        }
+        // 指数表記：仮数部は末尾の 0 を除いた全桁を「先頭 1 桁.残り」で表す
+        String digits = normalized.unscaledValue().abs().toString();
+        StringBuilder text = new StringBuilder(digits.length() + 16);
+        if (normalized.signum() < 0) text.append('-');
+        text.append(digits.charAt(0));
+        if (digits.length() > 1) {
+            text.append('.').append(digits, 1, digits.length());
+        }
+        return text.append('e').append(integerDigits - 1).toString();//e を使う
+    }
 
+    // ==================================================
+    // 文字列の組み立て
+    // ==================================================
+    //通常表示（toPlainString と同じ表記）
+    private static String plain(boolean negative, long magnitude, int digits, long scale) {
+        int zeros = 0;//整数の末尾に付ける 0 の数（scale が負の場合）
+        int leadingZeros = 0;//小数点直後に付ける 0 の数（1 未満の場合）
+        int length = (negative ? 1 : 0) + digits;
+        if (scale <= 0) {
+            zeros = (int) -scale;
+            length += zeros;
+        } else if (scale >= digits) {
+            leadingZeros = (int) (scale - digits);
+            length += 2 + leadingZeros;//"0." の分
+        } else {
+            length += 1;//"." の分
+        }
+        char[] buffer = buffer(length);
+        int position = 0;
+        if (negative) buffer[position++] = '-';
+        if (scale <= 0) {
+            position = writeDigits(buffer, position, magnitude, digits);
+            for (int i = 0; i < zeros; i++) buffer[position++] = '0';
+        } else if (scale >= digits) {
+            buffer[position++] = '0';
+            buffer[position++] = '.';
+            for (int i = 0; i < leadingZeros; i++) buffer[position++] = '0';
+            position = writeDigits(buffer, position, magnitude, digits);
+        } else {
+            int integerDigits = (int) (digits - scale);
+            writeDigits(buffer, position, magnitude, digits);
+            // 整数部の後ろに小数点を差し込む
+            System.arraycopy(buffer, position + integerDigits, buffer, position + integerDigits + 1, (int) scale);
+            buffer[position + integerDigits] = '.';
+            position += digits + 1;
+        }
+        return new String(buffer, 0, position);
+    }
 
+    //指数表記（仮数部は「先頭 1 桁.残りの桁」）
+    private static String scientific(boolean negative, long magnitude, int digits, long exponent) {
+        int exponentLength = Long.toString(exponent).length();
+        char[] buffer = buffer((negative ? 1 : 0) + digits + 2 + exponentLength);
+        int position = 0;
+        if (negative) buffer[position++] = '-';
+        writeDigits(buffer, position, magnitude, digits);
+        if (digits > 1) {
+            // 先頭 1 桁の後ろに小数点を差し込む
+            System.arraycopy(buffer, position + 1, buffer, position + 2, digits - 1);
+            buffer[position + 1] = '.';
+            position += digits + 1;
+        } else {
+            position += 1;
+        }
+        buffer[position++] = 'e';//e を使う
+        long rest = exponent;
+        for (int i = position + exponentLength - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+        position += exponentLength;
+        return new String(buffer, 0, position);
+    }
+
+    // ==================================================
+    // 補助メソッド
+    // ==================================================
+    //数字列を末尾から書き込み、書き込み後の位置を返す
+    private static int writeDigits(char[] buffer, int position, long magnitude, int digits) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + magnitude % 10);
+            magnitude /= 10;
+        }
+        return position + digits;
+    }
 
+    //10 進桁数（magnitude は 0 以上）
+    private static int digitCount(long magnitude) {
+        int digits = 1;
+        long limit = 10;
+        while (digits < 19 && magnitude >= limit) {
+            digits++;
+            limit *= 10;
+        }
+        return digits;
+    }
+
+    //必要な長さ以上のスレッドごとのバッファを返す
+    private static char[] buffer(int length) {
+        char[] buffer = BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    //整形結果キャッシュのエントリ（不変オブジェクトのためスレッド間で共有できる）
+    private static final class CacheEntry {
+        final BigDecimal value;
+        final int maxDigits;
+        final String text;
+
+        CacheEntry(BigDecimal value, int maxDigits, String text) {
+            this.value = value;
+            this.maxDigits = maxDigits;
+            this.text = text;
+        }
+    }
+}
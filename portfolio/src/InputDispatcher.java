@@ -0,0 +1,108 @@
+/**
+ * 入力の振り分けクラス。
+ *
+ * 本クラスは、キー文字およびボタンの表示文字を CalculatorModel の操作に対応付ける。
+ * 対応表は初期化時に 1 度だけ作成し、1 回の入力は表の参照と操作の呼び出しのみで処理する
+ * （入力のたびに文字列の比較や演算子の検索は行わない）。
+ *
+ * キーストローク再生・計算サービス・キーボード入力・画面のボタンは
+ * いずれも本クラスを経由して Model を操作する。
+ *
+ * 【キー文字】
+ * 0-9 . + - ×(*) ÷(/) ^ √(@) % r(1/x) = C(c) z(元に戻す) y(やり直し)
+ */
+public final class InputDispatcher {
+
+    /**
+     * 1 つの入力に対応する Model の操作。
+     */
+    @FunctionalInterface
+    public interface Action {
+        void apply(CalculatorModel model);
+    }
+
+    // キー文字（ASCII）ごとの操作（未対応の文字は null）
+    private static final Action[] ASCII_ACTIONS = new Action[128];
+    // ASCII 以外のキー文字（× ÷ √）の操作
+    private static final Action MUL = operator(Operator.MUL);
+    private static final Action DIV = operator(Operator.DIV);
+    private static final Action SQRT = operator(Operator.SQRT);
+
+    static {
+        for (char digit = '0'; digit <= '9'; digit++) {
+            char key = digit;
+            ASCII_ACTIONS[key] = model -> model.appendDigit(key);
+        }
+        for (char key = 0; key < ASCII_ACTIONS.length; key++) {
+            Operator operator = Operator.fromKey(key);
+            if (operator != null) {
+                ASCII_ACTIONS[key] = operator(operator);
+            }
+        }
+        ASCII_ACTIONS['.'] = CalculatorModel::appendDot;
+        ASCII_ACTIONS['='] = CalculatorModel::equalsOp;
+        ASCII_ACTIONS['C'] = CalculatorModel::clearAll;
+        ASCII_ACTIONS['c'] = CalculatorModel::clearAll;
+        ASCII_ACTIONS['z'] = CalculatorModel::undo;
+        ASCII_ACTIONS['y'] = CalculatorModel::redo;
+    }
+
+    // ユーティリティクラスのためインスタンス化を禁止
+    private InputDispatcher() {}
+
+    /**
+     * 1 文字分のキー入力を Model に適用する。
+     * 未対応の文字（空白など）は無視する。
+     *
+     * @return 対応するキーであれば true
+     */
+    public static boolean dispatch(CalculatorModel model, char key) {
+        Action action = forKey(key);
+        if (action == null) {
+            return false;
+        }
+        action.apply(model);
+        return true;
+    }
+
+    /**
+     * キー文字に対応する操作を返す。
+     *
+     * @return 対応する操作（未対応の文字は null）
+     */
+    public static Action forKey(char key) {
+        if (key < ASCII_ACTIONS.length) {
+            return ASCII_ACTIONS[key];
+        }
+        switch (key) {
+            case '×': return MUL;
+            case '÷': return DIV;
+            case '√': return SQRT;
+            default: return null;
+        }
+    }
+
+    /**
+     * ボタンの表示文字（0-9 . = C + - × ÷ xʸ √ % 1/x）に対応するキー文字を返す。
+     * 画面の構築時に 1 度だけ呼び出す。
+     *
+     * @throws IllegalArgumentException 未対応の表示文字の場合
+     */
+    public static char keyForLabel(String label) {
+        if (label.length() == 1) {
+            char key = label.charAt(0);
+            if ((key >= '0' && key <= '9') || key == '.' || key == '=' || key == 'C') {
+                return key;
+            }
+        }
+        Operator operator = Operator.fromDisplay(label);
+        if (operator == null) {
+            throw new IllegalArgumentException("Unknown button: " + label);
+        }
+        return operator.getKey();
+    }
+
+    private static Action operator(Operator operator) {
+        return model -> model.inputOperator(operator);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * 入力の種類を表す列挙型。
+ *
+ * 入力状態（InputState）と入力の種類の組ごとに、その入力を受け付けるかを
+ * 事前に作成した表で管理し、CalculatorModel の入力制御に利用する。
+ * 受け付けた入力による状態の遷移は CalculatorModel の各処理で行う。
+ * C・元に戻す・やり直しはすべての状態で受け付けるため、本表の対象としない。
+ */
+import java.util.EnumSet;
+
+public enum InputKind {
+    DIGIT(InputState.READY, InputState.INPUT_NUMBER, InputState.INPUT_OPERATOR),    // 0〜9
+    DOT(InputState.READY, InputState.INPUT_NUMBER, InputState.INPUT_OPERATOR),      // .
+    OPERATOR(InputState.READY, InputState.INPUT_NUMBER, InputState.INPUT_OPERATOR), // + - × ÷ xʸ √ % 1/x
+    EQUALS(InputState.READY, InputState.INPUT_NUMBER, InputState.INPUT_OPERATOR);   // =
+
+    // 受け付ける組の表（[InputState][InputKind]）
+    private static final boolean[][] ACCEPTS = new boolean[InputState.values().length][values().length];
+    static {
+        for (InputKind kind : values()) {
+            for (InputState state : kind.acceptedStates) {
+                ACCEPTS[state.ordinal()][kind.ordinal()] = true;
+            }
+        }
+    }
+
+    private final EnumSet<InputState> acceptedStates;//表の作成にのみ使う
+
+    InputKind(InputState... acceptedStates) {
+        this.acceptedStates = EnumSet.of(acceptedStates[0], acceptedStates);
+    }
+
+    //state のときにこの入力を受け付けるか
+    public boolean accepts(InputState state) {
+        return ACCEPTS[state.ordinal()][ordinal()];
+    }
+}
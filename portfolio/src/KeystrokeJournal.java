@@ -0,0 +1,418 @@
+/**
+ * キーストローク記録（ジャーナル）クラス。
+ *
+ * 本クラスは、CalculatorModel に適用された入力イベント
+ * （数字・小数点・演算子・=・C・元に戻す・やり直し）をメモリマップトファイルに追記し、
+ * 再起動時にはスナップショットとその後の記録の再生で状態を復元する。
+ *
+ * 【ファイル構成】（指定ディレクトリ内）
+ * - keystrokes.journal  入力イベントの列（1 イベント 1 バイト。0 は未書き込み＝終端）
+ * - keystrokes.snapshot 最新のスナップショット（Model の状態・元に戻す履歴と、その時点のジャーナル上の位置）
+ *
+ * 【設計方針】
+ * - 追記はマップした領域への 1 バイトの書き込みのみとし、イベントごとのシステムコールは行わない
+ * - ディスクへの反映（force）は専用スレッドが一定間隔でまとめて行う（グループコミット）
+ * - スナップショットは一定イベント数ごとに取得し、書き込みは専用スレッドで行う
+ *   （一時ファイルに書いてから置き換えるため、書き込み途中で停止しても前回分が残る）
+ * - 復元時はスナップショット以降の記録のみを再生し、全履歴の再処理は行わない
+ * - ジャーナルは監査用に全履歴を残す（スナップショット取得時に切り詰めない）
+ *
+ * 本クラスは Model と同じく 1 スレッドからのみ操作する（flush のみ他スレッドから呼び出せる）。
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class KeystrokeJournal implements Closeable {
+    static final String JOURNAL_FILE = "keystrokes.journal";
+    static final String SNAPSHOT_FILE = "keystrokes.snapshot";
+    // 一度にマップする領域の大きさ
+    private static final int REGION_SIZE = 1 << 20;
+    // スナップショットを取得する間隔（イベント数）
+    private static final long SNAPSHOT_INTERVAL = 1 << 16;
+    // ディスクへ反映する間隔
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    // 復元時の読み込み単位
+    private static final int READ_CHUNK = 64 * 1024;
+    private static final int SNAPSHOT_MAGIC = 0x4B4A5333;//"KJS3"
+    private static final int SNAPSHOT_MAGIC_V2 = 0x4B4A5332;//"KJS2"（元に戻す履歴なし）
+    private static final int SNAPSHOT_MAGIC_V1 = 0x4B4A5331;//"KJS1"（元に戻す履歴・単項演算の結果の入力値なし）
+
+    // イベントの種類（上位 4 ビット）。下位 4 ビットに数字・演算子の番号を持つ
+    private static final int END = 0x00;
+    private static final int DIGIT = 0x10;
+    private static final int DOT = 0x20;
+    private static final int OPERATOR = 0x30;
+    private static final int EQUALS = 0x40;
+    private static final int CLEAR = 0x50;
+    private static final int UNDO = 0x60;
+    private static final int REDO = 0x70;
+    private static final Operator[] OPERATORS = Operator.values();
+
+    private final Path directory;
+    private final FileChannel channel;
+    private final CalculatorModel model;
+    private final ScheduledExecutorService flusher;
+    private final AtomicReference<PendingSnapshot> pendingSnapshot = new AtomicReference<>();
+    private volatile MappedByteBuffer region;//現在書き込み中の領域
+    private long regionStart;//region の先頭のファイル上の位置
+    private long position;//次に書き込む位置（= 記録済みのイベント数）
+    private long lastSnapshot;//最後にスナップショットを取得した位置
+    private volatile long written;//書き込み済みの位置（flush 用に公開する）
+    private long flushed;//ディスクへ反映済みの位置（flushNow 内でのみ使う）
+    private boolean closed;
+
+    private KeystrokeJournal(Path directory, FileChannel channel, CalculatorModel model, long position) throws IOException {
+        this.directory = directory;
+        this.channel = channel;
+        this.model = model;
+        this.position = position;
+        this.lastSnapshot = position;
+        this.written = position;
+        this.flushed = position;
+        this.regionStart = position - position % REGION_SIZE;
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "calculator-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * ジャーナルを開き、Model の状態を復元したうえで記録を開始する。
+     * 復元はスナップショット（あれば）と、その後の記録の再生で行う。
+     *
+     * @param directory ジャーナルを置くディレクトリ（なければ作成する）
+     * @param model 復元・記録の対象（以後、入力イベントは自動的に記録される）
+     */
+    public static KeystrokeJournal open(Path directory, CalculatorModel model) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve(JOURNAL_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            model.setJournal(null);
+            model.clearAll();
+            long start = readSnapshot(directory.resolve(SNAPSHOT_FILE), model);
+            long end = replay(channel, start, model);
+            //終端より後ろ（反映されなかった記録の残り）は消しておく
+            if (end < channel.size()) {
+                channel.truncate(end);
+            }
+            KeystrokeJournal journal = new KeystrokeJournal(directory, channel, model, end);
+            model.setJournal(journal);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //記録済みのイベント数
+    public long getPosition() {
+        return position;
+    }
+
+    // ==================================================
+    // 追記（CalculatorModel から呼ばれる）
+    // ==================================================
+    void appendDigit(char digit) {
+        if (digit >= '0' && digit <= '9') {
+            append(DIGIT | (digit - '0'));
+        }
+    }
+
+    void appendDot() {
+        append(DOT);
+    }
+
+    void appendOperator(Operator operator) {
+        append(OPERATOR | operator.ordinal());
+    }
+
+    void appendEquals() {
+        append(EQUALS);
+    }
+
+    void appendClear() {
+        append(CLEAR);
+    }
+
+    void appendUndo() {
+        append(UNDO);
+    }
+
+    void appendRedo() {
+        append(REDO);
+    }
+
+    private void append(int event) {
+        //イベント適用前の状態を、このイベントの位置のスナップショットとする
+        if (position - lastSnapshot >= SNAPSHOT_INTERVAL) {
+            pendingSnapshot.set(new PendingSnapshot(position, model));
+            lastSnapshot = position;
+        }
+        if (position - regionStart == REGION_SIZE) {
+            nextRegion();
+        }
+        region.put((int) (position - regionStart), (byte) event);
+        position++;
+        written = position;
+    }
+
+    //次の領域をマップする（書き終えた領域はここで反映しておく）
+    private void nextRegion() {
+        MappedByteBuffer previous = region;
+        try {
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart + REGION_SIZE, REGION_SIZE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to extend journal", e);
+        }
+        regionStart += REGION_SIZE;
+        previous.force();
+    }
+
+    // ==================================================
+    // ディスクへの反映
+    // ==================================================
+    /**
+     * 書き込み済みの記録と、取得済みのスナップショットをディスクへ反映する。
+     * 他のスレッド（終了時のフックなど）からも呼び出せる。
+     */
+    public void flush() throws IOException {
+        flushNow();
+    }
+
+    private synchronized void flushNow() throws IOException {
+        long target = written;
+        if (target != flushed) {
+            region.force();
+            flushed = target;
+        }
+        //記録を反映した後にスナップショットを書く
+        PendingSnapshot snapshot = pendingSnapshot.getAndSet(null);
+        if (snapshot != null) {
+            writeSnapshot(snapshot);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flushNow();
+        } catch (IOException | RuntimeException e) {
+            ErrorHandler.handle(e);
+        }
+    }
+
+    /**
+     * 記録を終了する。現在の状態のスナップショットを書き、ファイルを閉じる。
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        model.setJournal(null);
+        flusher.shutdownNow();
+        pendingSnapshot.set(new PendingSnapshot(position, model));
+        try {
+            flushNow();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // ==================================================
+    // スナップショット
+    // ==================================================
+    private void writeSnapshot(PendingSnapshot pending) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeLong(pending.position);
+        writeState(out, pending.snapshot);
+        out.writeInt(pending.history.length);
+        out.writeInt(pending.historyPosition);
+        for (CalculatorModel.Snapshot state : pending.history) {
+            writeState(out, state);
+        }
+        out.flush();
+
+        Path target = directory.resolve(SNAPSHOT_FILE);
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            file.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //スナップショットを読み込んで Model に反映し、その位置を返す（なければ 0）
+    private static long readSnapshot(Path file, CalculatorModel model) throws IOException {
+        if (!Files.exists(file)) return 0;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V2 && magic != SNAPSHOT_MAGIC_V1) {
+                throw new IOException("Not a journal snapshot: " + file);
+            }
+            long position = in.readLong();
+            CalculatorModel.Snapshot snapshot = readState(in, magic != SNAPSHOT_MAGIC_V1);
+            if (magic != SNAPSHOT_MAGIC) {
+                model.restore(snapshot);
+                return position;
+            }
+            CalculatorModel.Snapshot[] history = new CalculatorModel.Snapshot[in.readInt()];
+            int historyPosition = in.readInt();
+            for (int i = 0; i < history.length; i++) {
+                history[i] = readState(in, true);
+            }
+            model.restore(snapshot, history, historyPosition);
+            return position;
+        }
+    }
+
+    //Model の状態を書き込む
+    private static void writeState(DataOutputStream out, CalculatorModel.Snapshot snapshot) throws IOException {
+        out.writeByte(snapshot.state.ordinal());
+        out.writeByte(snapshot.pendingOp == null ? -1 : snapshot.pendingOp.ordinal());
+        out.writeBoolean(snapshot.inputStarted);
+        out.writeBoolean(snapshot.inputNegative);
+        out.writeBoolean(snapshot.inputHasDot);
+        out.writeByte(snapshot.inputDigits);
+        out.writeByte(snapshot.inputFractionDigits);
+        out.writeLong(snapshot.inputUnscaled);
+        writeDecimal(out, snapshot.computedInput);
+        writeDecimal(out, snapshot.leftOperand);
+    }
+
+    //hasComputedInput が false の場合は KJS1 の形式（computedInput を持たない）として読む
+    private static CalculatorModel.Snapshot readState(DataInputStream in, boolean hasComputedInput) throws IOException {
+        InputState state = InputState.values()[in.readByte()];
+        int pendingOp = in.readByte();
+        boolean inputStarted = in.readBoolean();
+        boolean inputNegative = in.readBoolean();
+        boolean inputHasDot = in.readBoolean();
+        int inputDigits = in.readByte();
+        int inputFractionDigits = in.readByte();
+        long inputUnscaled = in.readLong();
+        BigDecimal computedInput = hasComputedInput ? readDecimal(in) : null;
+        BigDecimal leftOperand = readDecimal(in);
+        return new CalculatorModel.Snapshot(leftOperand, inputStarted, inputNegative, inputHasDot,
+                inputDigits, inputFractionDigits, inputUnscaled, computedInput,
+                pendingOp < 0 ? null : OPERATORS[pendingOp], state);
+    }
+
+    //BigDecimal（null 可）を書き込む
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            out.writeInt(value.scale());
+            out.writeInt(unscaled.length);
+            out.write(unscaled);
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readInt()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    // ==================================================
+    // 再生
+    // ==================================================
+    //start から終端までの記録を Model に適用し、終端の位置を返す
+    private static long replay(FileChannel channel, long start, CalculatorModel model) throws IOException {
+        long size = channel.size();
+        if (start >= size) return start;
+        ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+        long offset = start;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (!apply(model, buffer.get(i) & 0xFF)) {
+                    return offset + i;
+                }
+            }
+            offset += read;
+        }
+        return offset;
+    }
+
+    //1 イベントを Model に適用する（終端・不正なイベントの場合は false）
+    private static boolean apply(CalculatorModel model, int event) {
+        int argument = event & 0x0F;
+        try {
+            switch (event & 0xF0) {
+                case DIGIT:
+                    if (argument > 9) return false;
+                    model.appendDigit((char) ('0' + argument));
+                    return true;
+                case DOT:
+                    model.appendDot();
+                    return true;
+                case OPERATOR:
+                    if (argument >= OPERATORS.length) return false;
+                    model.inputOperator(OPERATORS[argument]);
+                    return true;
+                case EQUALS:
+                    model.equalsOp();
+                    return true;
+                case CLEAR:
+                    model.clearAll();
+                    return true;
+                case UNDO:
+                    model.undo();
+                    return true;
+                case REDO:
+                    model.redo();
+                    return true;
+                case END:
+                default:
+                    return false;
+            }
+        } catch (RuntimeException e) {
+            // 記録時と同じく、そのイベントのみを破棄して続行する（例外は記録時に通知済み）
+            return true;
+        }
+    }
+
+    //書き込み待ちのスナップショット（Model のスレッドで取得し、書き込みは専用スレッドで行う）
+    private static final class PendingSnapshot {
+        final long position;
+        final CalculatorModel.Snapshot snapshot;
+        final CalculatorModel.Snapshot[] history;
+        final int historyPosition;
+
+        PendingSnapshot(long position, CalculatorModel model) {
+            this.position = position;
+            this.snapshot = model.snapshot();
+            this.history = model.historySnapshot();
+            this.historyPosition = model.historyPosition();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * キーストローク再生クラス。
+ *
+ * 本クラスは、記録済みのキーストローク列（例: "12+3×4=C…"）を
+ * Swing を一切使わずに CalculatorModel へ流し込み、
+ * 最終的な表示文字列（getDisplayText）を得る処理を提供する。
+ * 入力は画面操作と同じ appendDigit / appendDot / inputOperator /
+ * equalsOp / clearAll を経由するため、回帰試験や負荷試験に利用できる。
+ *
+ * 【設計方針】
+ * - 1 スクリプト = 1 セッションとし、セッション開始時に clearAll で初期化する
+ * - Model はワーカースレッドごとに 1 つ保持し、スレッド間で共有しない
+ * - 入力はバッチ単位で読み込み、ForkJoinPool 上で並列に再生する
+ * - 結果は入力順に 1 件ずつ通知し、全件分のリストは保持しない
+ * - ForkJoinPool はインスタンスごとに生成するため、使い終えたら close で終了する
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class KeystrokeReplayer implements AutoCloseable {
+    // 1 バッチあたりのセッション数（メモリ上に保持する最大件数）
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    // これ以下の件数はタスク分割せずに 1 スレッドで処理する
+    private static final int SPLIT_THRESHOLD = 64;
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    // ワーカースレッドごとの Model（スレッド間で共有しない）
+    private final ThreadLocal<CalculatorModel> models = ThreadLocal.withInitial(CalculatorModel::new);
+
+    /**
+     * 結果通知用のコールバック。
+     * 呼び出し元スレッドから入力順に呼ばれる。
+     */
+    public interface ResultConsumer {
+        /**
+         * @param index 0 始まりのセッション番号
+         * @param script 再生したキーストローク列
+         * @param display 再生後の表示文字列
+         */
+        void accept(long index, CharSequence script, String display);
+    }
+
+    public KeystrokeReplayer(int parallelism, int batchSize) {
+        if (parallelism < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("parallelism and batchSize must be positive");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.batchSize = batchSize;
+    }
+
+    public KeystrokeReplayer() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    //並列再生用のスレッドを終了する（実行中の再生は最後まで行う）
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // ==================================================
+    // 単一セッションの再生
+    // ==================================================
+    /**
+     * 1 文字分のキー入力を Model に適用する。
+     * 未対応の文字（空白など）は無視する。
+     *
+     * @return 対応するキーであれば true
+     */
+    public static boolean applyKey(CalculatorModel model, char key) {
+        return InputDispatcher.dispatch(model, key);
+    }
+
+    /**
+     * 初期化した Model にキーストローク列を適用し、最終表示を返す。
+     */
+    public static String replay(CalculatorModel model, CharSequence script) {
+        model.clearAll();
+        for (int i = 0; i < script.length(); i++) {
+            try {
+                applyKey(model, script.charAt(i));
+            } catch (RuntimeException e) {
+                // 画面操作時（EDT 上の例外）と同様に、そのキー入力のみを破棄して続行する
+                ErrorHandler.handle(e);
+            }
+        }
+        return model.getDisplayText();
+    }
+
+    // ==================================================
+    // 複数セッションの並列再生
+    // ==================================================
+    /**
+     * キーストローク列を順に読み込み、並列に再生する。
+     * 読み込みはバッチ単位で行い、同時に保持するのは 1 バッチ分のみとする。
+     *
+     * @param scripts 再生するキーストローク列（1 要素 = 1 セッション）
+     * @param consumer 結果の通知先（入力順に呼ばれる）
+     * @return 再生したセッション数
+     */
+    public long replayAll(Iterator<? extends CharSequence> scripts, ResultConsumer consumer) {
+        CharSequence[] batch = new CharSequence[batchSize];
+        String[] results = new String[batchSize];
+        long index = 0;
+        while (scripts.hasNext()) {
+            int size = 0;
+            while (size < batchSize && scripts.hasNext()) {
+                batch[size++] = scripts.next();
+            }
+            pool.invoke(new ReplayTask(batch, results, 0, size));
+            for (int i = 0; i < size; i++) {
+                consumer.accept(index++, batch[i], results[i]);
+                batch[i] = null;
+                results[i] = null;
+            }
+        }
+        return index;
+    }
+
+    //バッチを分割して再生するタスク
+    private class ReplayTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence[] batch;
+        private final String[] results;
+        private final int from;
+        private final int to;
+
+        ReplayTask(CharSequence[] batch, String[] results, int from, int to) {
+            this.batch = batch;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                CalculatorModel model = models.get();
+                for (int i = from; i < to; i++) {
+                    results[i] = replay(model, batch[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ReplayTask(batch, results, from, middle),
+                      new ReplayTask(batch, results, middle, to));
+        }
+    }
+
+    // ==================================================
+    // CLI
+    // ==================================================
+    /**
+     * 使い方: KeystrokeReplayer [--quiet] [--threads N] <file | ->
+     *
+     * 1 行 = 1 セッションとして再生し、最終表示を標準出力へ、
+     * セッション数と sessions/sec を標準エラー出力へ出力する。
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean quiet = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String source = "-";
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--quiet")) {
+                quiet = true;
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                source = args[i];
+            }
+        }
+        BufferedReader reader = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        boolean printResults = !quiet;
+        long start = System.nanoTime();
+        long sessions;
+        try (reader; KeystrokeReplayer replayer = new KeystrokeReplayer(threads, DEFAULT_BATCH_SIZE)) {
+            sessions = replayer.replayAll(reader.lines().iterator(), (index, script, display) -> {
+                if (!printResults) {
+                    return;
+                }
+                try {
+                    writer.write(display);
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            writer.flush();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        ErrorHandler.flush(1000);
+        System.err.printf("sessions=%d elapsed=%.3fs sessions/sec=%.0f errors=%s dropped=%d%n",
+                sessions, seconds, seconds > 0 ? sessions / seconds : 0.0,
+                ErrorHandler.getCounts(), ErrorHandler.getDropped());
+        if (CalculatorMetrics.ENABLED) {
+            System.err.println(CalculatorMetrics.snapshot());
+        }
+    }
+}
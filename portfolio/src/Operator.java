@@ -10,31 +10,52 @@
  * 除算時の 0 除算などの計算エラーは例外として通知し、
  * Model 側でエラー状態へ遷移した場合は、
  * 画面表示として「ERROR」を表示する仕様とする。
+ *
+ * 【関数演算（単項演算子）】
+ * √（平方根）、%（÷100）、1/x（逆数）は 1 つの値に対する演算とし、isUnary() が true となる。
+ * xʸ（べき乗）は二項演算子として扱う。
+ * 計算の手間が入力値によらず一定の範囲に収まるよう、以下の方式で計算する。
+ * - √ : ニュートン法（有効桁数を倍々に増やしながら反復し、反復回数は有効桁数の対数に比例）
+ * - xʸ: 繰り返し二乗法（乗算回数は指数の桁数に比例）。指数は整数のみ
+ *       途中結果が表示できる範囲（10^±MAX_EXPONENT）を超えた時点で打ち切る
+ * - 1/x: 除算と同じ（scale 10 / HALF_UP）
+ * 有効桁数はシステムプロパティ calculator.precision（既定 34 桁。1 未満の指定は ErrorHandler に通知して既定値とする）で指定する。
  */
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.Map;
 //演算処理を 関数として保持するために使う、「引数2つ → 戻り値1つ」の関数型インタフェース
 import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
 
 public enum Operator {
 
     ADD("+", "+", BigDecimal::add),
     SUB("-", "-", BigDecimal::subtract),
     MUL("×", "*", BigDecimal::multiply),
-    DIV("÷", "/", (left, right) -> {
-        if (right.compareTo(BigDecimal.ZERO) == 0) {
-            throw new ArithmeticException("Divide by zero");
-        }
-        return left.divide(right, 10, RoundingMode.HALF_UP);
-    });
+    DIV("÷", "/", Operator::divide),
+    POW("xʸ", "^", Operator::power),
+    SQRT("√", "sqrt", Operator::squareRoot),
+    PERCENT("%", "%", Operator::percent),
+    RECIPROCAL("1/x", "1/x", Operator::reciprocal);
+    //除算結果の小数点以下桁数
+    static final int DIV_SCALE = 10;
+    //関数演算の有効桁数（システムプロパティ calculator.precision）
+    static final MathContext PRECISION = new MathContext(precisionProperty(), RoundingMode.HALF_UP);
+    //べき乗の結果として扱う範囲（絶対値が 10^MAX_EXPONENT 以上はエラー）
+    static final int MAX_EXPONENT = 999;
     //UIに表示する文字（+, × など）
     private final String display;
     //内部処理・ログ用の記号（+, *, / など） 
     private final String symbol;
     //計算処理 
     private final BiFunction<BigDecimal, BigDecimal, BigDecimal> action;
+    //単項演算の計算処理（二項演算子の場合は null）
+    private final UnaryOperator<BigDecimal> unaryAction;
+    //計算結果のメモ化キャッシュ（無効時は null）
+    private volatile OperatorMemoCache memo;
     Operator(
             String display,
             String symbol,
@@ -43,6 +64,18 @@ public enum Operator {
         this.display = display;
         this.symbol = symbol;
         this.action = action;
+        this.unaryAction = null;
+    }
+    Operator(
+            String display,
+            String symbol,
+            UnaryOperator<BigDecimal> unaryAction
+    ) {
+        this.display = display;
+        this.symbol = symbol;
+        //メモ化キャッシュと共通に扱うため、右辺を無視する二項演算としても保持する
+        this.action = (operand, ignored) -> unaryAction.apply(operand);
+        this.unaryAction = unaryAction;
     }
     public String getDisplay() {
         return display;
@@ -50,9 +83,213 @@ public enum Operator {
     public String getSymbol() {
         return symbol;
     }
+    //単項演算子（√ % 1/x）か
+    public boolean isUnary() {
+        return unaryAction != null;
+    }
     public BigDecimal apply(BigDecimal left, BigDecimal right) {
+        if (unaryAction != null) {
+            throw new IllegalStateException(name() + " is a unary operator");
+        }
+        OperatorMemoCache cache = memo;
+        if (cache != null) {
+            return cache.apply(left, right, action);
+        }
         return action.apply(left, right);
     }
+    /**
+     * 単項演算子の計算を行う。
+     *
+     * @throws ArithmeticException 負数の平方根・0 の逆数の場合
+     * @throws IllegalStateException 二項演算子の場合
+     */
+    public BigDecimal apply(BigDecimal operand) {
+        if (unaryAction == null) {
+            throw new IllegalStateException(name() + " is a binary operator");
+        }
+        OperatorMemoCache cache = memo;
+        if (cache != null) {
+            return cache.apply(operand, BigDecimal.ZERO, action);
+        }
+        return unaryAction.apply(operand);
+    }
+    /**
+     * この演算子の計算結果のメモ化を有効にする。
+     * 以降の apply は、同じ被演算子の組であればキャッシュの結果を返す。
+     * キャッシュはすべての CalculatorModel で共有される。
+     *
+     * @param capacity 保持する計算結果の最大数
+     * @return 有効にしたキャッシュ（統計の参照用）
+     */
+    public OperatorMemoCache enableMemo(int capacity) {
+        //除算の結果は被演算子の値のみで決まるため、キーを正規化してヒット率を上げる
+        OperatorMemoCache cache = new OperatorMemoCache(capacity, this == DIV);
+        memo = cache;
+        return cache;
+    }
+    //メモ化を無効にする
+    public void disableMemo() {
+        memo = null;
+    }
+    //有効なメモ化キャッシュ（無効時は null）
+    public OperatorMemoCache getMemo() {
+        return memo;
+    }
+    /**
+     * 2 つの列の要素ごとに演算を適用する（ColumnKernels による一括演算）。
+     * 結果の各要素は apply と同じ値となる。
+     *
+     * @return 演算結果の列（long に収まらない要素・0 除算の要素を含む場合がある）
+     */
+    public ScaledColumn applyColumns(ScaledColumn left, ScaledColumn right) {
+        return ColumnKernels.apply(this, left, right);
+    }
+    /**
+     * 2 つの double 配列の要素ごとに演算を適用する（0 除算の要素は NaN）。
+     */
+    public void applyColumns(double[] left, double[] right, double[] out) {
+        ColumnKernels.apply(this, left, right, out);
+    }
+    /**
+     * 除算（DIV の計算処理）。
+     * 計算式の評価など、関数を経由せずに直接呼び出す場合にも使う。
+     *
+     * @throws ArithmeticException 0 除算の場合
+     */
+    static BigDecimal divide(BigDecimal left, BigDecimal right) {
+        if (right.compareTo(BigDecimal.ZERO) == 0) {
+            throw new ArithmeticException("Divide by zero");
+        }
+        return left.divide(right, DIV_SCALE, RoundingMode.HALF_UP);
+    }
+    /**
+     * べき乗（POW の計算処理）。繰り返し二乗法で、各乗算は PRECISION の有効桁数に丸める。
+     * 負の指数は逆数（除算と同じ scale 10）とする。
+     *
+     * @throws ArithmeticException 指数が整数でない・結果が表示できる範囲を超える・0 の負のべき乗の場合
+     */
+    static BigDecimal power(BigDecimal base, BigDecimal exponent) {
+        BigDecimal integral = exponent.stripTrailingZeros();
+        if (integral.scale() > 0) {
+            throw new ArithmeticException("Non-integer exponent");
+        }
+        if (integral.precision() - integral.scale() > 10) {
+            throw new ArithmeticException("Exponent out of range");
+        }
+        long n = integral.longValueExact();
+        if (n == 0) return BigDecimal.ONE;
+        if (base.signum() == 0) {
+            if (n < 0) throw new ArithmeticException("Divide by zero");
+            return BigDecimal.ZERO;
+        }
+        boolean negativeExponent = n < 0;
+        long remaining = Math.abs(n);
+        BigDecimal result = BigDecimal.ONE;
+        BigDecimal square = base;
+        while (true) {
+            if ((remaining & 1) != 0) {
+                result = result.multiply(square, PRECISION);
+            }
+            remaining >>>= 1;
+            if (remaining == 0) break;
+            square = square.multiply(square, PRECISION);
+            /*
+             * 残りの乗算には最上位ビットの分（この square 以降）が必ず含まれるため、
+             * square が範囲外になった時点で結果も範囲外と確定する
+             */
+            long magnitude = decimalExponent(square);
+            if (magnitude >= MAX_EXPONENT) {
+                //|x| > 1 の正のべき乗は過大、負のべき乗は 0 に丸まる
+                if (negativeExponent) return BigDecimal.ZERO.setScale(DIV_SCALE);
+                throw new ArithmeticException("Overflow");
+            }
+            if (magnitude < -MAX_EXPONENT) {
+                //|x| < 1 の正のべき乗は 0 に近づき、負のべき乗は過大
+                if (negativeExponent) throw new ArithmeticException("Overflow");
+                return BigDecimal.ZERO;
+            }
+        }
+        if (negativeExponent) {
+            return divide(BigDecimal.ONE, result);
+        }
+        if (decimalExponent(result) >= MAX_EXPONENT) {
+            throw new ArithmeticException("Overflow");
+        }
+        return result;
+    }
+    /**
+     * 平方根（SQRT の計算処理）。
+     * double による近似値（約 15 桁）から始め、有効桁数を倍にしながらニュートン法で反復する。
+     * 結果は PRECISION の有効桁数に丸め、小数点以下は除算と同じく最大 10 桁とする。
+     *
+     * @throws ArithmeticException 負数の場合
+     */
+    static BigDecimal squareRoot(BigDecimal value) {
+        if (value.signum() < 0) {
+            throw new ArithmeticException("Square root of negative number");
+        }
+        if (value.signum() == 0) return BigDecimal.ZERO;
+        //value = m × 10^(2k)（0.1 <= m < 10）とし、√m を double で近似して 10^k 倍する
+        long k = Math.floorDiv((long) value.precision() - value.scale(), 2);
+        double mantissa = value.scaleByPowerOfTen((int) (-2 * k)).doubleValue();
+        BigDecimal root = new BigDecimal(Math.sqrt(mantissa), MathContext.DECIMAL64).scaleByPowerOfTen((int) k);
+        int target = PRECISION.getPrecision() + 2;//丸め誤差の分を加える
+        int digits = MathContext.DECIMAL64.getPrecision();
+        BigDecimal half = new BigDecimal("0.5");
+        do {
+            digits = Math.min(digits * 2, target);
+            MathContext context = new MathContext(digits, RoundingMode.HALF_EVEN);
+            root = root.add(value.divide(root, context)).multiply(half, context);
+        } while (digits < target);
+        BigDecimal result = root.round(PRECISION).stripTrailingZeros();
+        if (result.scale() > DIV_SCALE) {
+            result = result.setScale(DIV_SCALE, RoundingMode.HALF_UP);
+        }
+        return result;
+    }
+    //パーセント（PERCENT の計算処理）：値 ÷ 100
+    static BigDecimal percent(BigDecimal value) {
+        return value.movePointLeft(2);
+    }
+    //逆数（RECIPROCAL の計算処理）：1 ÷ 値（除算と同じ scale 10 / HALF_UP）
+    static BigDecimal reciprocal(BigDecimal value) {
+        return divide(BigDecimal.ONE, value);
+    }
+    //10 進の指数（絶対値の常用対数の整数部）
+    private static long decimalExponent(BigDecimal value) {
+        return (long) value.precision() - value.scale() - 1;
+    }
+    /**
+     * 固定小数点（スケール付き long）で計算する高速経路。
+     * 結果は apply と unscaled 値・scale ともに一致する。
+     * オーバーフローなどで long のまま正確に計算できない場合は false を返すため、
+     * 呼び出し元は apply（BigDecimal）で計算し直すこと。
+     *
+     * @param result 計算結果の格納先
+     * @return 計算できた場合は true
+     * @throws ArithmeticException 0 除算の場合
+     */
+    public boolean applyScaled(long left, int leftScale, long right, int rightScale, ScaledValue result) {
+        switch (this) {
+            case ADD: return ScaledArithmetic.add(left, leftScale, right, rightScale, result);
+            case SUB: return ScaledArithmetic.subtract(left, leftScale, right, rightScale, result);
+            case MUL: return ScaledArithmetic.multiply(left, leftScale, right, rightScale, result);
+            case DIV: return ScaledArithmetic.divide(left, leftScale, right, rightScale, DIV_SCALE, result);
+            default: return false;
+        }
+    }
+    /*
+     * 1 未満の指定で初期化に失敗しないよう、その場合は 34 とする
+     * （0 は桁数の制限なしとなり、べき乗・平方根の計算が終わらなくなるため受け付けない）
+     */
+    private static int precisionProperty() {
+        int precision = Integer.getInteger("calculator.precision", 34);
+        if (precision < 1) {
+            ErrorHandler.handle(new IllegalArgumentException("Invalid calculator.precision: " + precision));
+            return 34;
+        }
+        return precision;
+    }
     //UI表示 → Operator のマッピング 
     private static final Map<String, Operator> DISPLAY_MAP = new HashMap<>();
     static {
@@ -68,4 +305,38 @@ public enum Operator {
     public static Operator fromDisplay(String display) {
         return DISPLAY_MAP.get(display);
     }
+    /**
+     * キー入力文字から Operator を取得する（キーストローク再生・キーボード入力用）
+     * 表示文字（× ÷）と記号（* /）のどちらも受け付ける
+     * @param key 入力文字
+     * @return 対応する Operator（存在しない場合は null）
+     */
+    public static Operator fromKey(char key) {
+        switch (key) {
+            case '+': return ADD;
+            case '-': return SUB;
+            case '×': case '*': return MUL;
+            case '÷': case '/': return DIV;
+            case '^': return POW;
+            case '√': case '@': return SQRT;
+            case '%': return PERCENT;
+            case 'r': return RECIPROCAL;
+            default: return null;
+        }
+    }
+    /**
+     * この演算子を表すキー入力文字（fromKey の逆変換）
+     */
+    public char getKey() {
+        switch (this) {
+            case ADD: return '+';
+            case SUB: return '-';
+            case MUL: return '×';
+            case DIV: return '÷';
+            case POW: return '^';
+            case SQRT: return '√';
+            case PERCENT: return '%';
+            default: return 'r';
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+/**
+ * 演算結果のメモ化キャッシュクラス。
+ *
+ * 本クラスは、Operator の計算結果を被演算子の組をキーとして保持し、
+ * 同じ計算の繰り返し（単位換算や固定比率の除算など）を省く。
+ * Operator.enableMemo で演算子ごとに有効化し、
+ * 有効な間は Operator.apply から自動的に参照される。
+ *
+ * 【設計方針】
+ * - 容量は上限付きとし、超えた場合は最も長く使われていないものから破棄する（LRU）
+ * - キーのハッシュでセグメントに分割し、セグメントごとにロックする
+ *   （多数の CalculatorModel から同時に使っても 1 つのロックに集中しない）
+ * - 計算はロックの外で行う（同じキーを同時に計算した場合は後の結果で上書きする）
+ * - ヒット・ミス・破棄の回数を LongAdder で数える
+ * - 除算の結果は被演算子の値のみで決まる（scale によらない）ため、
+ *   除算のキーは末尾の 0 を除いた値に正規化する
+ * - 例外（0 除算など）となった計算は保持しない
+ */
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+public class OperatorMemoCache {
+    // セグメント数（2 のべき乗）
+    private static final int SEGMENTS = 16;
+
+    private final boolean normalizeKeys;
+    private final int capacity;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity 保持する計算結果の最大数
+     * @param normalizeKeys キーを末尾の 0 を除いた値に正規化するか（結果が scale によらない演算のみ）
+     */
+    OperatorMemoCache(int capacity, boolean normalizeKeys) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.normalizeKeys = normalizeKeys;
+        //容量をセグメントに振り分ける（各セグメント最低 1 件）
+        for (int i = 0; i < SEGMENTS; i++) {
+            int segmentCapacity = capacity / SEGMENTS + (i < capacity % SEGMENTS ? 1 : 0);
+            segments[i] = new Segment(Math.max(1, segmentCapacity));
+        }
+    }
+
+    /**
+     * キャッシュにあればその結果を返し、なければ計算して保持する。
+     */
+    BigDecimal apply(BigDecimal left, BigDecimal right, BiFunction<BigDecimal, BigDecimal, BigDecimal> action) {
+        Key key = normalizeKeys
+                ? new Key(left.stripTrailingZeros(), right.stripTrailingZeros())
+                : new Key(left, right);
+        Segment segment = segments[key.hash & (SEGMENTS - 1)];
+        BigDecimal cached = segment.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        BigDecimal result = action.apply(left, right);
+        segment.put(key, result);
+        return result;
+    }
+
+    // ==================================================
+    // 統計
+    // ==================================================
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //現在保持している計算結果の数
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    //保持している計算結果と統計を消去する
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "OperatorMemoCache[size=" + size() + "/" + capacity
+                + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    // ==================================================
+    // 内部クラス
+    // ==================================================
+    //被演算子の組
+    private static final class Key {
+        final BigDecimal left;
+        final BigDecimal right;
+        final int hash;
+
+        Key(BigDecimal left, BigDecimal right) {
+            this.left = left;
+            this.right = right;
+            int h = left.hashCode() * 31 + right.hashCode();
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return hash == key.hash && left.equals(key.left) && right.equals(key.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    //ロックの単位となるセグメント（アクセス順の LinkedHashMap による LRU）
+    private final class Segment {
+        private final LinkedHashMap<Key, BigDecimal> entries;
+
+        Segment(int capacity) {
+            this.entries = new LinkedHashMap<Key, BigDecimal>(capacity * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, BigDecimal> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized BigDecimal get(Key key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(Key key, BigDecimal value) {
+            entries.put(key, value);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+    }
+}
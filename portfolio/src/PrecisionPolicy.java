@@ -0,0 +1,114 @@
+/**
+ * 計算結果の有効桁数の方針クラス。
+ *
+ * 本クラスは、CalculatorModel が演算のたびに得る計算結果（次の左辺値）を
+ * 一定の有効桁数に丸めるかどうかを表す。
+ * 乗算の連続では scale が加算され、除算の結果は常に scale 10 となるため、
+ * 丸めを行わないと連続計算のたびに仮数部が長くなり、1 回の計算の時間とメモリが増え続ける。
+ * 有効桁数を上限付きにすることで、連続計算の長さによらず 1 回の計算の手間を一定に保つ。
+ *
+ * 【方針】
+ * - bounded(n): 有効桁数が n 桁を超える結果を n 桁に丸める（HALF_UP）
+ * - EXACT     : 丸めない（従来の動作）
+ * 既定値はシステムプロパティ calculator.chain.precision で指定する
+ * （桁数、または "exact"。未指定時は EXACT とし、従来の表示を変えない）。
+ * bounded を指定した場合、有効桁数を超える連続計算の結果は丸めた値を表示する
+ * （例: 99999999 の 5 乗は 34 桁では 9.9999995000000099999999000000005e39 となり、
+ * 丸めない場合の 9.999999500000009999999900000000499999999e39 とは末尾が異なる）。
+ * 値が解釈できない場合は ErrorHandler に通知し、EXACT とする。
+ *
+ * 本クラスのインスタンスは不変で、複数の Model から共有できる。
+ */
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+public final class PrecisionPolicy {
+    /**
+     * 丸めを行わない方針
+     */
+    public static final PrecisionPolicy EXACT = new PrecisionPolicy(null);
+
+    private static final PrecisionPolicy DEFAULT = fromProperty(System.getProperty("calculator.chain.precision"));
+
+    private final MathContext context;//丸めの桁数（丸めない場合は null）
+
+    private PrecisionPolicy(MathContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 有効桁数を digits 桁までとする方針。
+     *
+     * @throws IllegalArgumentException digits が 1 未満の場合
+     */
+    public static PrecisionPolicy bounded(int digits) {
+        if (digits < 1) {
+            throw new IllegalArgumentException("digits must be positive");
+        }
+        return new PrecisionPolicy(new MathContext(digits, RoundingMode.HALF_UP));
+    }
+
+    //既定の方針（システムプロパティ calculator.chain.precision）
+    public static PrecisionPolicy defaultPolicy() {
+        return DEFAULT;
+    }
+
+    private static PrecisionPolicy fromProperty(String value) {
+        if (value == null || value.trim().equalsIgnoreCase("exact")) return EXACT;
+        try {
+            return bounded(Integer.parseInt(value.trim()));
+        } catch (IllegalArgumentException e) {
+            //不正な指定で Model を生成できなくならないよう、既定の方針とする
+            ErrorHandler.handle(new IllegalArgumentException("Invalid calculator.chain.precision: " + value, e));
+            return EXACT;
+        }
+    }
+
+    /**
+     * 計算結果を方針に従って丸める。
+     * 桁数が上限以内の場合は、引数の値をそのまま返す。
+     */
+    public BigDecimal normalize(BigDecimal value) {
+        if (context == null || value.precision() <= context.getPrecision()) {
+            return value;
+        }
+        return value.round(context);
+    }
+
+    /**
+     * 二項演算子を適用し、結果を方針に従って丸める。
+     * 除算で小数点以下 Operator.DIV_SCALE 桁の商が上限桁数を超える場合は、
+     * 全桁の商を求めてから丸めるのではなく、上限桁数の商を直接求める。
+     *
+     * @throws ArithmeticException 0 除算など計算できない場合
+     */
+    public BigDecimal apply(Operator operator, BigDecimal left, BigDecimal right) {
+        if (operator == Operator.DIV && context != null && right.signum() != 0
+                && minQuotientDigits(left, right) > context.getPrecision()) {
+            return left.divide(right, context);
+        }
+        return normalize(operator.apply(left, right));
+    }
+
+    //小数点以下 DIV_SCALE 桁の商の桁数の下限（整数部の桁数の差から見積もる）
+    private static long minQuotientDigits(BigDecimal left, BigDecimal right) {
+        long leftIntegerDigits = (long) left.precision() - left.scale();
+        long rightIntegerDigits = (long) right.precision() - right.scale();
+        return leftIntegerDigits - rightIntegerDigits + Operator.DIV_SCALE;
+    }
+
+    public boolean isExact() {
+        return context == null;
+    }
+
+    //丸めの桁数（丸めない場合は 0）
+    public int getDigits() {
+        return context == null ? 0 : context.getPrecision();
+    }
+
+    @Override
+    public String toString() {
+        return context == null ? "PrecisionPolicy[exact]" : "PrecisionPolicy[digits=" + context.getPrecision() + "]";
+    }
+}
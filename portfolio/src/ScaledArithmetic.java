@@ -0,0 +1,103 @@
+/**
+ * 固定小数点（スケール付き long）演算用ユーティリティクラス。
+ *
+ * 本クラスは、Operator の四則演算を BigDecimal を生成せずに
+ * プリミティブ値のみで計算する高速経路を提供する。
+ * 結果は BigDecimal による計算（Operator.apply）と
+ * unscaled 値・scale ともに完全に一致する。
+ *
+ * 【設計方針】
+ * - オーバーフローや桁あふれは正確に検出し、その場合は false を返す
+ *   （呼び出し元は BigDecimal による通常経路へフォールバックする）
+ * - 0 除算は Operator.apply と同じく ArithmeticException で通知する
+ * - 計算中にオブジェクトを生成しない
+ */
+public class ScaledArithmetic {
+    // long で扱える 10 進桁数（10^18 < Long.MAX_VALUE）
+    static final int MAX_LONG_DIGITS = 18;
+    // 10 の累乗表（10^0 ～ 10^18）
+    private static final long[] POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    // ユーティリティクラスのためインスタンス化を禁止
+    private ScaledArithmetic() {}
+
+    // ==================================================
+    // 四則演算
+    // ==================================================
+    //加算（結果の scale は大きい方の scale）
+    public static boolean add(long left, int leftScale, long right, int rightScale, ScaledValue result) {
+        if (leftScale < rightScale) {
+            int diff = rightScale - leftScale;
+            if (diff > MAX_LONG_DIGITS) return false;
+            long hi = Math.multiplyHigh(left, POWERS_OF_TEN[diff]);
+            long lo = left * POWERS_OF_TEN[diff];
+            if (hi != (lo >> 63)) return false;
+            left = lo;
+            leftScale = rightScale;
+        } else if (rightScale < leftScale) {
+            int diff = leftScale - rightScale;
+            if (diff > MAX_LONG_DIGITS) return false;
+            long hi = Math.multiplyHigh(right, POWERS_OF_TEN[diff]);
+            long lo = right * POWERS_OF_TEN[diff];
+            if (hi != (lo >> 63)) return false;
+            right = lo;
+        }
+        long sum = left + right;
+        //符号が両方の入力と異なればオーバーフロー
+        if (((left ^ sum) & (right ^ sum)) < 0) return false;
+        result.set(sum, leftScale);
+        return true;
+    }
+
+    //減算（結果の scale は大きい方の scale）
+    public static boolean subtract(long left, int leftScale, long right, int rightScale, ScaledValue result) {
+        if (right == Long.MIN_VALUE) return false;//符号反転できない
+        return add(left, leftScale, -right, rightScale, result);
+    }
+
+    //乗算（結果の scale は両者の scale の和）
+    public static boolean multiply(long left, int leftScale, long right, int rightScale, ScaledValue result) {
+        long scale = (long) leftScale + rightScale;
+        if (scale != (int) scale) return false;
+        long hi = Math.multiplyHigh(left, right);
+        long lo = left * right;
+        if (hi != (lo >> 63)) return false;
+        result.set(lo, (int) scale);
+        return true;
+    }
+
+    /**
+     * 除算（BigDecimal.divide(right, scale, HALF_UP) と同じ結果）
+     *
+     * @param resultScale 結果の小数点以下桁数
+     */
+    public static boolean divide(long left, int leftScale, long right, int rightScale, int resultScale, ScaledValue result) {
+        if (right == 0) {
+            throw new ArithmeticException("Divide by zero");
+        }
+        //left / right × 10^resultScale を整数で求めるため、被除数を 10^shift 倍する
+        long shift = (long) resultScale + rightScale - leftScale;
+        if (shift < 0 || shift > MAX_LONG_DIGITS) return false;
+        if (left == Long.MIN_VALUE || right == Long.MIN_VALUE) return false;
+        long hi = Math.multiplyHigh(left, POWERS_OF_TEN[(int) shift]);
+        long dividend = left * POWERS_OF_TEN[(int) shift];
+        if (hi != (dividend >> 63) || dividend == Long.MIN_VALUE) return false;
+        long quotient = dividend / right;
+        long remainder = dividend % right;
+        if (remainder != 0) {
+            // HALF_UP: 余りが除数の半分以上なら 0 から遠ざかる方向へ丸める
+            long absRemainder = Math.abs(remainder);
+            long absRight = Math.abs(right);
+            if (absRemainder >= absRight - absRemainder) {
+                quotient += ((dividend ^ right) < 0) ? -1 : 1;
+            }
+        }
+        result.set(quotient, resultScale);
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * 固定小数点値の列（カラム）クラス。
+ *
+ * 本クラスは、同じ scale を共有する多数の値を long 配列で保持する。
+ * 値は「values[i] × 10^-scale」で表す。
+ * ColumnKernels による列単位の一括演算の入力・出力として使う。
+ *
+ * 【long に収まらない要素・エラー要素】
+ * - 演算結果が long に収まらない要素は BigDecimal として別に保持する（spill）
+ * - 0 除算となった要素はエラーとして記録する（電卓の ERROR 表示に相当）
+ * いずれも発生した場合にのみ配列を確保するため、通常は long 配列のみを持つ。
+ */
+import java.math.BigDecimal;
+
+public class ScaledColumn {
+    private final long[] values;//スケールなしの値
+    private final int scale;//列で共有する小数点以下の桁数
+    private BigDecimal[] spill;//long に収まらない要素（該当しない要素は null）
+    private boolean[] errors;//エラーとなった要素
+
+    public ScaledColumn(long[] values, int scale) {
+        this.values = values;
+        this.scale = scale;
+    }
+
+    //空の列（結果の格納用）
+    public ScaledColumn(int size, int scale) {
+        this(new long[size], scale);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * long 配列そのものを返す（コピーしない）。
+     * spill・エラー要素の位置の値は意味を持たない。
+     */
+    public long[] values() {
+        return values;
+    }
+
+    /**
+     * 要素の値を返す。
+     *
+     * @return 値（エラー要素の場合は null）
+     */
+    public BigDecimal get(int index) {
+        if (isError(index)) return null;
+        if (isSpilled(index)) return spill[index];
+        return BigDecimal.valueOf(values[index], scale);
+    }
+
+    //long に収まらず BigDecimal で保持している要素か
+    public boolean isSpilled(int index) {
+        return spill != null && spill[index] != null;
+    }
+
+    //エラー（0 除算など）となった要素か
+    public boolean isError(int index) {
+        return errors != null && errors[index];
+    }
+
+    //spill・エラー要素を 1 つでも持つか
+    public boolean hasExceptions() {
+        return spill != null || errors != null;
+    }
+
+    // ==================================================
+    // 演算結果の記録（ColumnKernels から呼ばれる）
+    // ==================================================
+    //複数のワーカーから呼ばれるため、配列の確保は同期して行う
+    synchronized void setSpilled(int index, BigDecimal value) {
+        if (spill == null) {
+            spill = new BigDecimal[values.length];
+        }
+        spill[index] = value;
+    }
+
+    synchronized void setError(int index) {
+        if (errors == null) {
+            errors = new boolean[values.length];
+        }
+        errors[index] = true;
+    }
+
+    synchronized void clearError(int index) {
+        if (errors != null) {
+            errors[index] = false;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * 固定小数点値（スケール付き long）を保持するクラス。
+ *
+ * 値は「unscaled × 10^-scale」で表し、BigDecimal の
+ * unscaledValue / scale と同じ意味を持つ。
+ * Operator.applyScaled の計算結果を受け取るための
+ * 再利用可能な入れ物として使い、計算ごとのオブジェクト生成を避ける。
+ *
+ * 本クラスはスレッドセーフではない（呼び出し元ごとに保持すること）。
+ */
+import java.math.BigDecimal;
+
+public class ScaledValue {
+    private long unscaled;//スケールなしの値
+    private int scale;//小数点以下の桁数
+
+    public ScaledValue() {
+    }
+
+    public ScaledValue(long unscaled, int scale) {
+        set(unscaled, scale);
+    }
+
+    public void set(long unscaled, int scale) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+    }
+
+    public long getUnscaled() {
+        return unscaled;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    //BigDecimal に変換（フォールバック時・表示時に使用）
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * BigDecimal の値を取り込む。
+     * unscaled 値が long に収まらない場合は取り込まずに false を返す。
+     */
+    public boolean setFrom(BigDecimal value) {
+        if (value.precision() > ScaledArithmetic.MAX_LONG_DIGITS) {
+            return false;
+        }
+        set(value.unscaledValue().longValue(), value.scale());
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
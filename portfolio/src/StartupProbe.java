@@ -0,0 +1,73 @@
+/**
+ * 起動時間計測クラス。
+ *
+ * 本クラスは、通常起動と同じ手順（CalculatorApp.createAndShow）で画面を表示し、
+ * 以下の時間を JVM の起動時刻からの経過時間として計測して標準出力へ出力する。
+ * - 画面が表示されるまでの時間（time-to-visible-frame）
+ * - 最初のキー入力から計算結果が表示されるまでを含めた時間（time-to-first-result）
+ * 計測後はプロセスを終了する。AppCDS アーカイブ作成時の学習実行にも使う。
+ *
+ * 出力形式: visibleFrameMs=… firstResultMs=… mainEntryMs=…
+ */
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+public class StartupProbe {
+    // 入力するキー列と、期待する計算結果
+    private static final String KEYS = "12+3×4=";
+    private static final String EXPECTED = "60";
+    // 計算結果の表示を確認する間隔
+    private static final int POLL_MILLIS = 1;
+
+    // ユーティリティクラスのためインスタンス化を禁止
+    private StartupProbe() {}
+
+    /**
+     * 使い方: StartupProbe [timeoutSeconds]
+     */
+    public static void main(String[] args) throws Exception {
+        long mainEntry = System.currentTimeMillis();
+        long timeoutSeconds = args.length > 0 ? Long.parseLong(args[0]) : 30;
+        if (java.awt.GraphicsEnvironment.isHeadless()) {
+            System.err.println("Startup probe requires a display");
+            System.exit(2);
+        }
+        long[] visibleAt = new long[1];
+        long[] resultAt = new long[1];
+        CountDownLatch done = new CountDownLatch(1);
+
+        CalculatorApp.warmUp();
+        SwingUtilities.invokeLater(() -> {
+            CalculatorFrame[] frame = new CalculatorFrame[1];
+            frame[0] = CalculatorApp.createAndShow(null, () -> {
+                visibleAt[0] = System.currentTimeMillis();
+                frame[0].inputKeys(KEYS);
+                //計算結果が表示されるまで EDT 上で確認する
+                Timer timer = new Timer(POLL_MILLIS, null);
+                timer.addActionListener(event -> {
+                    if (EXPECTED.equals(frame[0].getDisplay())) {
+                        resultAt[0] = System.currentTimeMillis();
+                        timer.stop();
+                        done.countDown();
+                    }
+                });
+                timer.start();
+            });
+        });
+
+        boolean completed = done.await(timeoutSeconds, TimeUnit.SECONDS);
+        // JMX 関連のクラス読み込みが計測に含まれないよう、JVM の起動時刻は計測後に取得する
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        if (!completed) {
+            System.err.println("Startup probe timed out after " + timeoutSeconds + "s");
+            System.exit(1);
+        }
+        System.out.println("visibleFrameMs=" + (visibleAt[0] - jvmStart)
+                + " firstResultMs=" + (resultAt[0] - jvmStart)
+                + " mainEntryMs=" + (mainEntry - jvmStart));
+        System.exit(0);
+    }
+}
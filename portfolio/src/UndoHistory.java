@@ -0,0 +1,130 @@
+/**
+ * 元に戻す・やり直し用の状態履歴クラス。
+ *
+ * 本クラスは、CalculatorModel の状態のスナップショットを固定長のリングバッファに保持する。
+ * スナップショットは不変で、値（BigDecimal・演算子）は前後の状態と同じインスタンスを共有するため、
+ * 1 状態あたりのメモリは小さな 1 オブジェクト分のみとなる。
+ * 容量を超えた場合は最も古い状態から上書きするため、セッションの長さによらずメモリは一定となる。
+ *
+ * 【構成】
+ * - 位置は通し番号で管理し、配列上の位置は容量での剰余とする
+ * - first（最も古い状態）≦ current（現在の状態）≦ last（やり直しできる最も新しい状態）
+ * - 新しい状態を記録すると、current より新しい状態（やり直し分）は破棄する
+ *
+ * 本クラスは Model と同じく 1 スレッドからのみ操作する。
+ */
+final class UndoHistory {
+    // 既定の容量（現在の状態を含む保持数。システムプロパティ calculator.undo.capacity）
+    static final int DEFAULT_CAPACITY = capacityProperty();
+
+    //1 未満の指定で Model を生成できなくならないよう、その場合は 100 とする
+    private static int capacityProperty() {
+        int capacity = Integer.getInteger("calculator.undo.capacity", 100);
+        if (capacity < 1) {
+            ErrorHandler.handle(new IllegalArgumentException("Invalid calculator.undo.capacity: " + capacity));
+            return 100;
+        }
+        return capacity;
+    }
+
+    private final CalculatorModel.Snapshot[] states;
+    private long first;
+    private long current;
+    private long last;
+
+    /**
+     * @param capacity 現在の状態を含めて保持する状態の数（1 の場合は元に戻せない）
+     * @throws IllegalArgumentException capacity が 1 未満の場合
+     */
+    UndoHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        states = new CalculatorModel.Snapshot[capacity];
+    }
+
+    //履歴を破棄し、state のみを持つ状態にする
+    void reset(CalculatorModel.Snapshot state) {
+        for (long i = first; i <= last; i++) {
+            states[index(i)] = null;
+        }
+        first = current = last = 0;
+        states[0] = state;
+    }
+
+    //現在の状態
+    CalculatorModel.Snapshot current() {
+        return states[index(current)];
+    }
+
+    //新しい状態を記録する（やり直し分は破棄する）
+    void record(CalculatorModel.Snapshot state) {
+        current++;
+        states[index(current)] = state;
+        for (long i = current + 1; i <= last; i++) {
+            states[index(i)] = null;//破棄した状態を参照し続けないようにする
+        }
+        last = current;
+        if (current - first >= states.length) {
+            first = current - states.length + 1;
+        }
+    }
+
+    //1 つ前の状態に戻し、その状態を返す（戻せない場合は null）
+    CalculatorModel.Snapshot undo() {
+        if (current == first) return null;
+        current--;
+        return current();
+    }
+
+    //1 つ後の状態に進め、その状態を返す（進めない場合は null）
+    CalculatorModel.Snapshot redo() {
+        if (current == last) return null;
+        current++;
+        return current();
+    }
+
+    boolean canUndo() {
+        return current != first;
+    }
+
+    boolean canRedo() {
+        return current != last;
+    }
+
+    // ==================================================
+    // 保存・復元（ジャーナルのスナップショット用）
+    // ==================================================
+    //保持している状態を古い順に返す
+    CalculatorModel.Snapshot[] toArray() {
+        CalculatorModel.Snapshot[] result = new CalculatorModel.Snapshot[(int) (last - first + 1)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = states[index(first + i)];
+        }
+        return result;
+    }
+
+    //toArray の結果における現在の状態の位置
+    int position() {
+        return (int) (current - first);
+    }
+
+    //toArray の結果から復元する（容量を超える場合は、現在の状態を残して古い状態・新しい状態の順に捨てる）
+    void load(CalculatorModel.Snapshot[] saved, int position) {
+        if (saved.length == 0 || position < 0 || position >= saved.length) {
+            throw new IllegalArgumentException("invalid history");
+        }
+        int skip = Math.max(0, position - states.length + 1);
+        int end = Math.min(saved.length, skip + states.length);
+        reset(saved[skip]);
+        for (int i = skip + 1; i < end; i++) {
+            states[index(i - skip)] = saved[i];
+        }
+        last = end - 1 - skip;
+        current = position - skip;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % states.length);
+    }
+}